@@ -0,0 +1,53 @@
+package com.vscode.ant.benchmarks;
+
+import com.vscode.ant.BuildFileGenerator;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Build files the parse benchmarks run against, generated with {@link BuildFileGenerator}.
+ *
+ * <ul>
+ *   <li>{@code small} - 10 targets, one file</li>
+ *   <li>{@code medium} - 500 targets over a chain of 3 imports, 3 dependencies each</li>
+ *   <li>{@code huge} - 5000 targets, 5 dependencies each</li>
+ *   <li>{@code deepImports} - a chain of 50 imported files with 20 targets each</li>
+ *   <li>{@code longDepends} - 1000 targets depending on up to 100 earlier targets</li>
+ * </ul>
+ */
+final class Corpus {
+
+    private Corpus() {
+    }
+
+    /**
+     * Write the named build file tree into {@code dir} and return its main build file.
+     */
+    static Path write(String name, Path dir) throws IOException {
+        switch (name) {
+            case "small":
+                return generator(10, 2, 0).generate(dir);
+            case "medium":
+                return generator(500, 3, 3).generate(dir);
+            case "huge":
+                return generator(5000, 5, 0).generate(dir);
+            case "deepImports":
+                return generator(20 * 51, 2, 50).generate(dir);
+            case "longDepends":
+                return generator(1000, 100, 0).generate(dir);
+            default:
+                throw new IllegalArgumentException("Unknown corpus: " + name);
+        }
+    }
+
+    private static BuildFileGenerator generator(int targets, int fanOut, int importDepth) {
+        BuildFileGenerator generator = new BuildFileGenerator();
+        generator.setTargets(targets);
+        generator.setFanOut(fanOut);
+        generator.setImportDepth(importDepth);
+        generator.setPropertyDensity(0.25);
+        generator.setMacrodefDensity(0.05);
+        return generator;
+    }
+}
@@ -0,0 +1,63 @@
+package com.vscode.ant.benchmarks;
+
+import com.google.gson.Gson;
+import com.vscode.ant.AntBuildInfo;
+import com.vscode.ant.AntBuildInfoAdapter;
+import com.vscode.ant.AntParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Parses each {@link Corpus} build file with the full Ant parser and the outline
+ * parser, and serializes the result on its own.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"small", "medium", "huge", "deepImports", "longDepends"})
+    public String corpus;
+
+    @Param({"false", "true"})
+    public boolean outline;
+
+    private Path dir;
+    private File buildFile;
+    private AntBuildInfo buildInfo;
+    private final Gson gson = AntBuildInfoAdapter.createGson();
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("ant-parser-bench");
+        buildFile = Corpus.write(corpus, dir).toFile();
+        buildInfo = AntParser.parseBuildFile(buildFile, outline);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public AntBuildInfo parse() {
+        return AntParser.parseBuildFile(buildFile, outline);
+    }
+
+    @Benchmark
+    public String serialize() {
+        return gson.toJson(buildInfo);
+    }
+}
@@ -0,0 +1,150 @@
+package com.vscode.ant.benchmarks;
+
+import com.sun.management.ThreadMXBean;
+import com.vscode.ant.AntBuildInfo;
+import com.vscode.ant.AntParser;
+import com.vscode.ant.BuildFileGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Parses generated build files of growing size and prints one CSV row per size and
+ * parser mode, to plot parse time and heap against input size:
+ *
+ * <pre>
+ * targets,files,bytes,mode,medianMillis,allocatedBytes,retainedBytes
+ * </pre>
+ *
+ * {@code allocatedBytes} is the median of what one parse allocated on its thread;
+ * {@code retainedBytes} is the heap one result keeps alive, measured with
+ * {@value #RETAINED_RESULTS} results alive at once and the lowest heap use of several GCs
+ * before and after (run with {@code -XX:+UseSerialGC} for steadier numbers).
+ *
+ * <pre>
+ * java -cp benchmarks.jar com.vscode.ant.benchmarks.ScalingRunner [--sizes 100,1000,...]
+ *     [--fan-out N] [--import-depth N] [--macrodefs D] [--properties D] [--runs N] &gt; scaling.csv
+ * </pre>
+ */
+public class ScalingRunner {
+
+    private static final int RETAINED_RESULTS = 10;
+
+    public static void main(String[] args) throws IOException {
+        List<Integer> sizes = Arrays.asList(100, 500, 1000, 5000, 10000, 20000, 50000);
+        int runs = 5;
+        BuildFileGenerator generator = new BuildFileGenerator();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--sizes":
+                    sizes = new ArrayList<>();
+                    for (String size : args[++i].split(",")) {
+                        sizes.add(Integer.parseInt(size.trim()));
+                    }
+                    break;
+                case "--fan-out":
+                    generator.setFanOut(Integer.parseInt(args[++i]));
+                    break;
+                case "--import-depth":
+                    generator.setImportDepth(Integer.parseInt(args[++i]));
+                    break;
+                case "--macrodefs":
+                    generator.setMacrodefDensity(Double.parseDouble(args[++i]));
+                    break;
+                case "--properties":
+                    generator.setPropertyDensity(Double.parseDouble(args[++i]));
+                    break;
+                case "--runs":
+                    runs = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown argument: " + args[i]);
+                    System.exit(1);
+            }
+        }
+
+        System.out.println("targets,files,bytes,mode,medianMillis,allocatedBytes,retainedBytes");
+        for (int size : sizes) {
+            Path dir = Files.createTempDirectory("ant-parser-scaling");
+            try {
+                generator.setTargets(size);
+                File buildFile = generator.generate(dir).toFile();
+                long bytes = 0;
+                int files = 0;
+                try (Stream<Path> paths = Files.list(dir)) {
+                    for (Path path : (Iterable<Path>) paths::iterator) {
+                        bytes += Files.size(path);
+                        files++;
+                    }
+                }
+                for (boolean outline : new boolean[] {false, true}) {
+                    System.out.println(size + "," + files + "," + bytes + "," + (outline ? "outline" : "full")
+                            + "," + measure(buildFile, outline, runs));
+                }
+            } finally {
+                try (Stream<Path> paths = Files.walk(dir)) {
+                    paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lowest heap use over several full GCs. One is not enough: weakly referenced caches
+     * release what they held a few collections later.
+     */
+    private static long usedAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int gc = 0; gc < 10; gc++) {
+            System.gc();
+            used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+
+    /**
+     * @return "medianMillis,allocatedBytes,retainedBytes"
+     */
+    private static String measure(File buildFile, boolean outline, int runs) {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        // Warm up once so class loading does not end up in the first measurement
+        AntParser.parseBuildFile(buildFile, outline);
+
+        List<Double> millis = new ArrayList<>();
+        List<Long> allocated = new ArrayList<>();
+        for (int run = 0; run < runs; run++) {
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            AntParser.parseBuildFile(buildFile, outline);
+            millis.add((System.nanoTime() - start) / 1e6);
+            allocated.add(threads.getCurrentThreadAllocatedBytes() - allocatedBefore);
+        }
+        Collections.sort(millis);
+        Collections.sort(allocated);
+
+        // Several results held at once, so the difference is well above the collector's noise
+        AntBuildInfo[] results = new AntBuildInfo[RETAINED_RESULTS];
+        long usedBefore = usedAfterGc();
+        for (int i = 0; i < results.length; i++) {
+            results[i] = AntParser.parseBuildFile(buildFile, outline);
+        }
+        long retained = (usedAfterGc() - usedBefore) / results.length;
+        Reference.reachabilityFence(results);
+
+        return String.format("%.3f,%d,%d", millis.get(millis.size() / 2), allocated.get(allocated.size() / 2),
+                Math.max(0, retained));
+    }
+}
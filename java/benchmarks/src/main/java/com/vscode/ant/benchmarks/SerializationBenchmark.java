@@ -0,0 +1,116 @@
+package com.vscode.ant.benchmarks;
+
+import com.google.gson.Gson;
+import com.vscode.ant.AntBuildInfo;
+import com.vscode.ant.AntBuildInfoAdapter;
+import com.vscode.ant.AntTarget;
+import com.vscode.ant.BuildInfoWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares Gson's reflective adapters with the hand-written {@link AntBuildInfoAdapter}.
+ *
+ * <p>The {@code *Cold} benchmarks create a new Gson for every call, which is what
+ * a freshly started parser process pays once; the others reuse a warm instance.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"10", "1000", "20000"})
+    public int targets;
+
+    private AntBuildInfo buildInfo;
+    private final Gson reflective = new Gson();
+    private final Gson adapters = AntBuildInfoAdapter.createGson();
+
+    @Setup
+    public void setUp() {
+        buildInfo = createBuildInfo(targets);
+    }
+
+    @Benchmark
+    public String reflectiveToJson() {
+        return reflective.toJson(buildInfo);
+    }
+
+    @Benchmark
+    public String adapterToJson() {
+        return adapters.toJson(buildInfo);
+    }
+
+    @Benchmark
+    public String reflectiveToJsonCold() {
+        return new Gson().toJson(buildInfo);
+    }
+
+    @Benchmark
+    public String adapterToJsonCold() {
+        return AntBuildInfoAdapter.createGson().toJson(buildInfo);
+    }
+
+    @Benchmark
+    public void streamingWriter(Blackhole blackhole) throws IOException {
+        Writer out = new OutputStreamWriter(new BlackholeOutputStream(blackhole), StandardCharsets.UTF_8);
+        new BuildInfoWriter(out, false).write(buildInfo);
+    }
+
+    static AntBuildInfo createBuildInfo(int targetCount) {
+        AntBuildInfo buildInfo = new AntBuildInfo();
+        buildInfo.setProjectName("benchmark");
+        buildInfo.setDefaultTarget("target0");
+        buildInfo.setBaseDir("/work/project");
+        buildInfo.setDescription("Synthetic build file");
+        buildInfo.setBuildFile("/work/project/build.xml");
+        buildInfo.setSourceFiles(Arrays.asList("/work/project/build.xml", "/work/project/common.xml"));
+
+        List<AntTarget> targetList = new ArrayList<>(targetCount);
+        for (int i = 0; i < targetCount; i++) {
+            AntTarget target = new AntTarget();
+            target.setName("target" + i);
+            target.setDescription(i % 3 == 0 ? "Builds part " + i : null);
+            target.setDependencies(i == 0 ? new ArrayList<>() : Arrays.asList("target" + (i - 1), "target" + (i / 2)));
+            target.setIfCondition(i % 7 == 0 ? "flag" + i : null);
+            target.setDefault(i == 0);
+            targetList.add(target);
+        }
+        buildInfo.setTargets(targetList);
+        return buildInfo;
+    }
+
+    /**
+     * Consumes written bytes without keeping them, so only serialization is measured.
+     */
+    private static final class BlackholeOutputStream extends OutputStream {
+        private final Blackhole blackhole;
+
+        BlackholeOutputStream(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void write(int b) {
+            blackhole.consume(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            blackhole.consume(b);
+        }
+    }
+}
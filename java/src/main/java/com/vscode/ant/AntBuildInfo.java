@@ -1,6 +1,7 @@
 package com.vscode.ant;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents the parsed information from an Ant build file.
@@ -12,6 +13,10 @@ public class AntBuildInfo {
     private String description;
     private String buildFile;
     private List<AntTarget> targets;
+    private List<DependencyProblem> dependencyProblems;
+    private List<String> sourceFiles;
+    // Only needed by the execution plan, so not part of the JSON result
+    private transient Map<String, String> properties;
 
     public String getProjectName() {
         return projectName;
@@ -60,4 +65,39 @@ public class AntBuildInfo {
     public void setTargets(List<AntTarget> targets) {
         this.targets = targets;
     }
+
+    /**
+     * Cycles and missing targets in the {@code depends} graph, or null if there are none.
+     */
+    public List<DependencyProblem> getDependencyProblems() {
+        return dependencyProblems;
+    }
+
+    public void setDependencyProblems(List<DependencyProblem> dependencyProblems) {
+        this.dependencyProblems = dependencyProblems;
+    }
+
+    /**
+     * Files this result was built from: the build file, its import/include
+     * closure and the property files it loaded.
+     */
+    public List<String> getSourceFiles() {
+        return sourceFiles;
+    }
+
+    public void setSourceFiles(List<String> sourceFiles) {
+        this.sourceFiles = sourceFiles;
+    }
+
+    /**
+     * Properties the build file and its imports define outside of targets, such as
+     * top-level {@code <property>} tasks, as they were when it was parsed.
+     */
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    public void setProperties(Map<String, String> properties) {
+        this.properties = properties;
+    }
 }
@@ -0,0 +1,148 @@
+package com.vscode.ant;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.vscode.ant.AntTargetAdapter.readString;
+import static com.vscode.ant.AntTargetAdapter.readStrings;
+import static com.vscode.ant.AntTargetAdapter.writeString;
+import static com.vscode.ant.AntTargetAdapter.writeStrings;
+
+/**
+ * Reflection-free Gson adapter for {@link AntBuildInfo}. Writes the same fields in
+ * the same order as Gson's reflective adapter, leaving out null values, and streams
+ * the targets one by one.
+ */
+public class AntBuildInfoAdapter extends TypeAdapter<AntBuildInfo> {
+
+    private final AntTargetAdapter targetAdapter = new AntTargetAdapter();
+    private final DependencyProblemAdapter problemAdapter = new DependencyProblemAdapter();
+
+    /**
+     * A Gson instance that serializes the parser model with these adapters
+     * instead of reflection.
+     */
+    public static Gson createGson() {
+        return new GsonBuilder()
+                .registerTypeAdapter(AntBuildInfo.class, new AntBuildInfoAdapter())
+                .registerTypeAdapter(AntTarget.class, new AntTargetAdapter())
+                .registerTypeAdapter(DependencyProblem.class, new DependencyProblemAdapter())
+                .create();
+    }
+
+    @Override
+    public void write(JsonWriter out, AntBuildInfo buildInfo) throws IOException {
+        if (buildInfo == null) {
+            out.nullValue();
+            return;
+        }
+        JsonWriteEvent event = new JsonWriteEvent();
+        event.begin();
+        out.beginObject();
+        writeString(out, "projectName", buildInfo.getProjectName());
+        writeString(out, "defaultTarget", buildInfo.getDefaultTarget());
+        writeString(out, "baseDir", buildInfo.getBaseDir());
+        writeString(out, "description", buildInfo.getDescription());
+        writeString(out, "buildFile", buildInfo.getBuildFile());
+        if (buildInfo.getTargets() != null) {
+            out.name("targets").beginArray();
+            for (AntTarget target : buildInfo.getTargets()) {
+                targetAdapter.write(out, target);
+            }
+            out.endArray();
+        }
+        if (buildInfo.getDependencyProblems() != null) {
+            out.name("dependencyProblems").beginArray();
+            for (DependencyProblem problem : buildInfo.getDependencyProblems()) {
+                problemAdapter.write(out, problem);
+            }
+            out.endArray();
+        }
+        writeStrings(out, "sourceFiles", buildInfo.getSourceFiles());
+        out.endObject();
+        event.end();
+        if (event.shouldCommit()) {
+            event.buildFile = buildInfo.getBuildFile();
+            event.targetCount = buildInfo.getTargets() != null ? buildInfo.getTargets().size() : 0;
+            event.commit();
+        }
+    }
+
+    @Override
+    public AntBuildInfo read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        AntBuildInfo buildInfo = new AntBuildInfo();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "projectName":
+                    buildInfo.setProjectName(readString(in));
+                    break;
+                case "defaultTarget":
+                    buildInfo.setDefaultTarget(readString(in));
+                    break;
+                case "baseDir":
+                    buildInfo.setBaseDir(readString(in));
+                    break;
+                case "description":
+                    buildInfo.setDescription(readString(in));
+                    break;
+                case "buildFile":
+                    buildInfo.setBuildFile(readString(in));
+                    break;
+                case "targets":
+                    buildInfo.setTargets(readTargets(in));
+                    break;
+                case "dependencyProblems":
+                    buildInfo.setDependencyProblems(readProblems(in));
+                    break;
+                case "sourceFiles":
+                    buildInfo.setSourceFiles(readStrings(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return buildInfo;
+    }
+
+    private List<AntTarget> readTargets(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<AntTarget> targets = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            targets.add(targetAdapter.read(in));
+        }
+        in.endArray();
+        return targets;
+    }
+
+    private List<DependencyProblem> readProblems(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<DependencyProblem> problems = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            problems.add(problemAdapter.read(in));
+        }
+        in.endArray();
+        return problems;
+    }
+}
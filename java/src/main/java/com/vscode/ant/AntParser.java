@@ -1,27 +1,105 @@
 package com.vscode.ant;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.vscode.ant.graph.DependencyGraph;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.ProjectHelper;
 import org.apache.tools.ant.Target;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 
 /**
  * Main entry point for parsing Apache Ant build files.
- * Outputs target information as JSON to stdout.
+ * Outputs target information as compact JSON to stdout ({@code --pretty} to indent it,
+ * {@code --diagnostics} to print phase timings to stderr), or serves parse requests
+ * over stdin/stdout when started with {@code --serve}, or parses many files
+ * at once when started with {@code --batch}, or finds and parses all build files
+ * below directories when started with {@code --index}.
  */
 public class AntParser {
 
     public static void main(String[] args) {
         if (args.length < 1) {
-            System.err.println("Usage: java -jar ant-parser.jar <build.xml path>");
+            System.err.println("Usage: java -jar ant-parser.jar [--outline] [--pretty] [--diagnostics] <build.xml path>");
+            System.err.println("       java -jar ant-parser.jar --serve [--cache-dir <dir>]");
+            System.err.println("       java -jar ant-parser.jar --batch [--outline] [--threads N] [--array] [build.xml | @argfile | -]...");
+            System.err.println("       java -jar ant-parser.jar --index [--outline] [--threads N] [--exclude GLOB]... <dir>...");
+            System.exit(1);
+        }
+
+        // Top-level tasks run while a build file is parsed and may print to System.out
+        // (in-VM java, script, custom tasks): keep the real stdout for the JSON and send
+        // everything else to stderr
+        PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16),
+                false, StandardCharsets.UTF_8);
+        System.setOut(System.err);
+
+        if ("--serve".equals(args[0])) {
+            try {
+                Path snapshot = null;
+                Path history = null;
+                if (args.length > 2 && "--cache-dir".equals(args[1])) {
+                    snapshot = Paths.get(args[2], "ant-parser-cache.bin");
+                    history = Paths.get(args[2], "ant-target-history.bin");
+                }
+                new ParserServer(System.in, out, snapshot, history).run();
+            } catch (Exception e) {
+                System.err.println("Parser server failed: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+
+        if ("--batch".equals(args[0])) {
+            try {
+                BatchParser.fromArgs(Arrays.copyOfRange(args, 1, args.length), System.in).run(out);
+            } catch (Exception e) {
+                System.err.println("Batch parsing failed: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+
+        if ("--index".equals(args[0])) {
+            try {
+                WorkspaceIndexer.run(Arrays.copyOfRange(args, 1, args.length), out);
+            } catch (Exception e) {
+                System.err.println("Indexing failed: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+
+        boolean outline = false;
+        boolean pretty = false;
+        boolean diagnose = false;
+        String buildFilePath = null;
+        for (String arg : args) {
+            if ("--outline".equals(arg)) {
+                outline = true;
+            } else if ("--pretty".equals(arg)) {
+                pretty = true;
+            } else if ("--diagnostics".equals(arg)) {
+                diagnose = true;
+            } else {
+                buildFilePath = arg;
+            }
+        }
+        if (buildFilePath == null) {
+            System.err.println("Usage: java -jar ant-parser.jar [--outline] [--pretty] [--diagnostics] <build.xml path>");
             System.exit(1);
         }
 
-        String buildFilePath = args[0];
         File buildFile = new File(buildFilePath);
 
         if (!buildFile.exists()) {
@@ -30,115 +108,169 @@ public class AntParser {
         }
 
         try {
-            AntBuildInfo buildInfo = parseBuildFile(buildFile);
-            Gson gson = new GsonBuilder().setPrettyPrinting().create();
-            System.out.println(gson.toJson(buildInfo));
+            ParseDiagnostics diagnostics = diagnose ? new ParseDiagnostics() : ParseDiagnostics.NONE;
+            AntBuildInfo buildInfo = parseBuildFile(buildFile, outline, diagnostics);
+            // Stream to stdout directly rather than through a String
+            long phaseStart = System.nanoTime();
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+            new BuildInfoWriter(writer, pretty).write(buildInfo);
+            writer.write(System.lineSeparator());
+            writer.flush();
+            diagnostics.phase("serialize", phaseStart);
+            if (diagnose) {
+                // Separate channel, so stdout stays a plain AntBuildInfo document
+                System.err.println(diagnostics.toJson());
+            }
         } catch (Exception e) {
             System.err.println("Error parsing build file: " + e.getMessage());
             System.exit(1);
         }
     }
 
+    /**
+     * Parse an Ant build file, either fully through Ant or with the fast
+     * {@link OutlineParser} that only reads the target outline.
+     */
+    public static AntBuildInfo parseBuildFile(File buildFile, boolean outline) {
+        return parseBuildFile(buildFile, outline, ParseDiagnostics.NONE);
+    }
+
+    /**
+     * Parse an Ant build file, recording phase and import timings in {@code diagnostics}.
+     */
+    public static AntBuildInfo parseBuildFile(File buildFile, boolean outline, ParseDiagnostics diagnostics) {
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        AntBuildInfo buildInfo = outline
+                ? OutlineParser.parseBuildFile(buildFile, diagnostics) : parseBuildFile(buildFile, diagnostics);
+        event.end();
+        if (event.shouldCommit()) {
+            event.buildFile = buildInfo.getBuildFile();
+            event.outline = outline;
+            event.targetCount = buildInfo.getTargets().size();
+            event.commit();
+        }
+        return buildInfo;
+    }
+
     /**
      * Parse an Ant build file and extract target information.
+     * Ant output is suppressed per project rather than by redirecting
+     * System.out/System.err, so several files can be parsed concurrently.
      */
     public static AntBuildInfo parseBuildFile(File buildFile) {
-        // Capture stdout/stderr to prevent Ant logging from corrupting our JSON output
-        java.io.PrintStream originalOut = System.out;
-        java.io.PrintStream originalErr = System.err;
-        java.io.ByteArrayOutputStream capturedOut = new java.io.ByteArrayOutputStream();
-        java.io.ByteArrayOutputStream capturedErr = new java.io.ByteArrayOutputStream();
+        return parseBuildFile(buildFile, ParseDiagnostics.NONE);
+    }
+
+    private static AntBuildInfo parseBuildFile(File buildFile, ParseDiagnostics diagnostics) {
+        long phaseStart = System.nanoTime();
+        Project project = new Project();
+        SourceFileListener sourceFiles = new SourceFileListener();
+        project.addBuildListener(sourceFiles);
+        if (ImportListener.isNeeded(diagnostics)) {
+            project.addBuildListener(new ImportListener(diagnostics));
+        }
         
-        try {
-            // Redirect stdout/stderr during Ant parsing
-            System.setOut(new java.io.PrintStream(capturedOut));
-            System.setErr(new java.io.PrintStream(capturedErr));
-            
-            Project project = new Project();
-            
-            // Add a silent build listener to suppress all Ant output
-            project.addBuildListener(new org.apache.tools.ant.BuildListener() {
-                @Override
-                public void messageLogged(org.apache.tools.ant.BuildEvent event) {}
-                @Override
-                public void buildStarted(org.apache.tools.ant.BuildEvent event) {}
-                @Override
-                public void buildFinished(org.apache.tools.ant.BuildEvent event) {}
-                @Override
-                public void targetStarted(org.apache.tools.ant.BuildEvent event) {}
-                @Override
-                public void targetFinished(org.apache.tools.ant.BuildEvent event) {}
-                @Override
-                public void taskStarted(org.apache.tools.ant.BuildEvent event) {}
-                @Override
-                public void taskFinished(org.apache.tools.ant.BuildEvent event) {}
-            });
-            
-            project.init();
-            project.setUserProperty("ant.file", buildFile.getAbsolutePath());
-            
-            // Set ant.home from ANT_HOME environment variable if available
-            String antHome = System.getenv("ANT_HOME");
-            if (antHome != null && !antHome.isEmpty()) {
-                project.setUserProperty("ant.home", antHome);
-            }
-            
-            // Set basedir to build file's parent to avoid validation errors
-            // when the build.xml references a basedir that doesn't exist
-            project.setBasedir(buildFile.getParentFile().getAbsolutePath());
+        project.init();
+        project.setUserProperty("ant.file", buildFile.getAbsolutePath());
         
-            ProjectHelper helper = ProjectHelper.getProjectHelper();
-            project.addReference("ant.projectHelper", helper);
-            helper.parse(project, buildFile);
-
-            AntBuildInfo buildInfo = new AntBuildInfo();
-            buildInfo.setProjectName(project.getName());
-            buildInfo.setDefaultTarget(project.getDefaultTarget());
-            buildInfo.setBaseDir(project.getBaseDir().getAbsolutePath());
-            buildInfo.setDescription(project.getDescription());
-            buildInfo.setBuildFile(buildFile.getAbsolutePath());
-
-            List<AntTarget> targets = new ArrayList<>();
-            Hashtable<String, Target> projectTargets = project.getTargets();
-
-            for (Map.Entry<String, Target> entry : projectTargets.entrySet()) {
-                Target target = entry.getValue();
-                String targetName = target.getName();
-                
-                // Skip empty target name (represents implicit target)
-                if (targetName == null || targetName.isEmpty()) {
-                    continue;
-                }
+        // Set ant.home from ANT_HOME environment variable if available
+        String antHome = System.getenv("ANT_HOME");
+        if (antHome != null && !antHome.isEmpty()) {
+            project.setUserProperty("ant.home", antHome);
+        }
+        
+        // Set basedir to build file's parent to avoid validation errors
+        // when the build.xml references a basedir that doesn't exist
+        project.setBasedir(buildFile.getParentFile().getAbsolutePath());
+        diagnostics.phase("projectInit", phaseStart);
 
-                AntTarget antTarget = new AntTarget();
-                antTarget.setName(targetName);
-                antTarget.setDescription(target.getDescription());
-                antTarget.setIfCondition(target.getIf());
-                antTarget.setUnlessCondition(target.getUnless());
-
-                // Get dependencies
-                Enumeration<String> deps = target.getDependencies();
-                List<String> dependencies = new ArrayList<>();
-                while (deps.hasMoreElements()) {
-                    dependencies.add(deps.nextElement());
-                }
-                antTarget.setDependencies(dependencies);
+        phaseStart = System.nanoTime();
+        ProjectHelper helper = ProjectHelper.getProjectHelper();
+        project.addReference("ant.projectHelper", helper);
+        diagnostics.phase("getProjectHelper", phaseStart);
+
+        phaseStart = System.nanoTime();
+        Map<String, Object> initialProperties = project.getProperties();
+        helper.parse(project, buildFile);
+        diagnostics.phase("parse", phaseStart);
+
+        phaseStart = System.nanoTime();
+        TargetExtractionEvent extraction = new TargetExtractionEvent();
+        extraction.begin();
+        AntBuildInfo buildInfo = new AntBuildInfo();
+        buildInfo.setProjectName(project.getName());
+        buildInfo.setDefaultTarget(project.getDefaultTarget());
+        buildInfo.setBaseDir(project.getBaseDir().getAbsolutePath());
+        buildInfo.setDescription(project.getDescription());
+        buildInfo.setBuildFile(buildFile.getAbsolutePath());
+        buildInfo.setSourceFiles(sourceFiles.getSourceFiles(helper));
+
+        // What the top-level tasks of the build file set
+        Map<String, String> properties = new HashMap<>();
+        for (Map.Entry<String, Object> property : project.getProperties().entrySet()) {
+            if (!property.getValue().equals(initialProperties.get(property.getKey()))) {
+                properties.put(property.getKey(), String.valueOf(property.getValue()));
+            }
+        }
+        buildInfo.setProperties(properties);
 
-                // Check if it's the default target
-                antTarget.setDefault(targetName.equals(project.getDefaultTarget()));
+        List<AntTarget> targets = new ArrayList<>();
+        Hashtable<String, Target> projectTargets = project.getTargets();
 
-                targets.add(antTarget);
+        for (Map.Entry<String, Target> entry : projectTargets.entrySet()) {
+            Target target = entry.getValue();
+            String targetName = target.getName();
+            
+            // Skip empty target name (represents implicit target)
+            if (targetName == null || targetName.isEmpty()) {
+                continue;
             }
 
-            // Sort targets alphabetically
-            targets.sort(Comparator.comparing(AntTarget::getName));
-            buildInfo.setTargets(targets);
+            AntTarget antTarget = new AntTarget();
+            antTarget.setName(targetName);
+            antTarget.setDescription(target.getDescription());
+            antTarget.setIfCondition(target.getIf());
+            antTarget.setUnlessCondition(target.getUnless());
+
+            // Get dependencies
+            Enumeration<String> deps = target.getDependencies();
+            List<String> dependencies = new ArrayList<>();
+            while (deps.hasMoreElements()) {
+                dependencies.add(deps.nextElement());
+            }
+            antTarget.setDependencies(dependencies);
+
+            // Check if it's the default target
+            antTarget.setDefault(targetName.equals(project.getDefaultTarget()));
+
+            targets.add(antTarget);
+        }
+
+        // Sort targets alphabetically
+        targets.sort(Comparator.comparing(AntTarget::getName));
+        buildInfo.setTargets(targets);
+        diagnostics.phase("extractTargets", phaseStart);
 
-            return buildInfo;
-        } finally {
-            // Restore original stdout/stderr
-            System.setOut(originalOut);
-            System.setErr(originalErr);
+        phaseStart = System.nanoTime();
+        setDependencyProblems(buildInfo);
+        diagnostics.phase("dependencyGraph", phaseStart);
+        extraction.end();
+        if (extraction.shouldCommit()) {
+            extraction.buildFile = buildInfo.getBuildFile();
+            extraction.targetCount = targets.size();
+            extraction.commit();
         }
+
+        return buildInfo;
+    }
+
+    /**
+     * Record the cycles and missing targets Ant would fail on, found while building
+     * the result's {@link DependencyGraph}.
+     */
+    static void setDependencyProblems(AntBuildInfo buildInfo) {
+        List<DependencyProblem> problems = DependencyGraph.of(buildInfo).problems();
+        buildInfo.setDependencyProblems(problems.isEmpty() ? null : problems);
     }
 }
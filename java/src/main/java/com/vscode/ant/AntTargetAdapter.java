@@ -0,0 +1,108 @@
+package com.vscode.ant;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reflection-free Gson adapter for {@link AntTarget}. Writes the same fields in
+ * the same order as Gson's reflective adapter, leaving out null values.
+ */
+public class AntTargetAdapter extends TypeAdapter<AntTarget> {
+
+    @Override
+    public void write(JsonWriter out, AntTarget target) throws IOException {
+        if (target == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        writeString(out, "name", target.getName());
+        writeString(out, "description", target.getDescription());
+        writeStrings(out, "dependencies", target.getDependencies());
+        writeString(out, "ifCondition", target.getIfCondition());
+        writeString(out, "unlessCondition", target.getUnlessCondition());
+        out.name("isDefault").value(target.isDefault());
+        out.endObject();
+    }
+
+    @Override
+    public AntTarget read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        AntTarget target = new AntTarget();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "name":
+                    target.setName(readString(in));
+                    break;
+                case "description":
+                    target.setDescription(readString(in));
+                    break;
+                case "dependencies":
+                    target.setDependencies(readStrings(in));
+                    break;
+                case "ifCondition":
+                    target.setIfCondition(readString(in));
+                    break;
+                case "unlessCondition":
+                    target.setUnlessCondition(readString(in));
+                    break;
+                case "isDefault":
+                    target.setDefault(in.nextBoolean());
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return target;
+    }
+
+    static void writeString(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+
+    static void writeStrings(JsonWriter out, String name, List<String> values) throws IOException {
+        if (values == null) {
+            return;
+        }
+        out.name(name).beginArray();
+        for (String value : values) {
+            out.value(value);
+        }
+        out.endArray();
+    }
+
+    static String readString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    static List<String> readStrings(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            values.add(readString(in));
+        }
+        in.endArray();
+        return values;
+    }
+}
@@ -0,0 +1,153 @@
+package com.vscode.ant;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parses many build files in one JVM on a bounded thread pool.
+ * By default one JSON document is written per line as soon as each file is parsed;
+ * with {@code --array} a single JSON array is written in input order instead.
+ *
+ * <pre>
+ * java -jar ant-parser.jar --batch [--outline] [--threads N] [--array] [build.xml | @argfile | -]...
+ * </pre>
+ */
+public class BatchParser {
+
+    private final List<String> buildFiles;
+    private final int threads;
+    private final boolean array;
+    private final boolean outline;
+    private final Gson gson = AntBuildInfoAdapter.createGson();
+
+    public BatchParser(List<String> buildFiles, int threads, boolean array, boolean outline) {
+        this.buildFiles = buildFiles;
+        this.threads = Math.max(1, threads);
+        this.array = array;
+        this.outline = outline;
+    }
+
+    /**
+     * Build a batch parser from the arguments following {@code --batch}.
+     * Arguments starting with {@code @} name a file containing one build file per line,
+     * and {@code -} (or no build file at all) reads the list from the given input stream.
+     */
+    public static BatchParser fromArgs(String[] args, InputStream stdin) throws IOException {
+        List<String> files = new ArrayList<>();
+        int threads = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+        boolean array = false;
+        boolean outline = false;
+        boolean readStdin = false;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("--threads".equals(arg) && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if ("--array".equals(arg)) {
+                array = true;
+            } else if ("--outline".equals(arg)) {
+                outline = true;
+            } else if ("-".equals(arg)) {
+                readStdin = true;
+            } else if (arg.startsWith("@")) {
+                addLines(files, Files.newBufferedReader(Paths.get(arg.substring(1)), StandardCharsets.UTF_8));
+            } else {
+                files.add(arg);
+            }
+        }
+
+        if (readStdin || files.isEmpty()) {
+            addLines(files, new BufferedReader(new InputStreamReader(stdin, StandardCharsets.UTF_8)));
+        }
+        return new BatchParser(files, threads, array, outline);
+    }
+
+    private static void addLines(List<String> files, BufferedReader reader) throws IOException {
+        try (BufferedReader in = reader) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    files.add(line);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parse all build files and write the results.
+     * Files that fail to parse are reported with an "error" member instead of a "result".
+     */
+    public void run(PrintStream out) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, buildFiles.size())));
+        try {
+            CompletionService<JsonObject> completion = new ExecutorCompletionService<>(executor);
+            List<Future<JsonObject>> futures = new ArrayList<>();
+            for (String buildFile : buildFiles) {
+                futures.add(completion.submit(() -> parse(buildFile)));
+            }
+
+            if (array) {
+                JsonArray results = new JsonArray();
+                for (Future<JsonObject> future : futures) {
+                    results.add(get(future));
+                }
+                out.println(gson.toJson(results));
+            } else {
+                for (int i = 0; i < futures.size(); i++) {
+                    out.println(gson.toJson(get(completion.take())));
+                    out.flush();
+                }
+            }
+            out.flush();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private JsonObject parse(String buildFilePath) {
+        JsonObject result = new JsonObject();
+        result.addProperty("buildFile", buildFilePath);
+        File buildFile = new File(buildFilePath);
+        try {
+            if (!buildFile.exists()) {
+                result.addProperty("error", "Build file not found: " + buildFilePath);
+            } else {
+                result.add("result", gson.toJsonTree(AntParser.parseBuildFile(buildFile, outline)));
+            }
+        } catch (Exception | LinkageError | StackOverflowError e) {
+            // Reported per file, e.g. a build file that includes itself
+            result.addProperty("error", "Error parsing build file: "
+                    + (e.getMessage() != null ? e.getMessage() : e.toString()));
+        }
+        return result;
+    }
+
+    private static JsonObject get(Future<JsonObject> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            // parse() reports failures in its result; anything else, like an OutOfMemoryError, ends the batch
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.vscode.ant;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Generates synthetic Ant build file trees for benchmarks. The same settings and
+ * seed always produce the same files.
+ *
+ * <p>Targets {@code t0..t(n-1)} are spread over {@code build.xml} and a chain of
+ * {@code importDepth} imported files. Each target depends on up to {@code fanOut}
+ * randomly chosen earlier targets, so the graph is acyclic unless cycles are
+ * injected. Macrodefs and properties are added per target with the given density
+ * (0.5 = one for every second target).</p>
+ *
+ * <pre>
+ * java -cp ant-parser.jar com.vscode.ant.BuildFileGenerator [--targets N] [--fan-out N]
+ *     [--import-depth N] [--macrodefs D] [--properties D] [--cycles] [--missing] [--seed N] &lt;dir&gt;
+ * </pre>
+ */
+public class BuildFileGenerator {
+
+    private int targets = 100;
+    private int fanOut = 2;
+    private int importDepth = 0;
+    private double macrodefDensity = 0;
+    private double propertyDensity = 0;
+    private boolean cycles;
+    private boolean missingTargets;
+    private long seed = 42;
+
+    public static void main(String[] args) throws IOException {
+        BuildFileGenerator generator = new BuildFileGenerator();
+        Path dir = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--targets":
+                    generator.setTargets(Integer.parseInt(args[++i]));
+                    break;
+                case "--fan-out":
+                    generator.setFanOut(Integer.parseInt(args[++i]));
+                    break;
+                case "--import-depth":
+                    generator.setImportDepth(Integer.parseInt(args[++i]));
+                    break;
+                case "--macrodefs":
+                    generator.setMacrodefDensity(Double.parseDouble(args[++i]));
+                    break;
+                case "--properties":
+                    generator.setPropertyDensity(Double.parseDouble(args[++i]));
+                    break;
+                case "--cycles":
+                    generator.setCycles(true);
+                    break;
+                case "--missing":
+                    generator.setMissingTargets(true);
+                    break;
+                case "--seed":
+                    generator.setSeed(Long.parseLong(args[++i]));
+                    break;
+                default:
+                    dir = Paths.get(args[i]);
+            }
+        }
+        if (dir == null) {
+            System.err.println("Usage: java -cp ant-parser.jar com.vscode.ant.BuildFileGenerator [--targets N] [--fan-out N]"
+                    + " [--import-depth N] [--macrodefs D] [--properties D] [--cycles] [--missing] [--seed N] <dir>");
+            System.exit(1);
+        }
+        System.out.println(generator.generate(dir));
+    }
+
+    /**
+     * Write the build file tree into {@code dir} (created if needed).
+     * @return the main build file
+     */
+    public Path generate(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Random random = new Random(seed);
+
+        List<List<String>> depends = new ArrayList<>(targets);
+        for (int i = 0; i < targets; i++) {
+            Set<String> deps = new LinkedHashSet<>();
+            int count = Math.min(fanOut, i);
+            while (deps.size() < count) {
+                deps.add("t" + random.nextInt(i));
+            }
+            depends.add(new ArrayList<>(deps));
+        }
+        // One injected problem per 1000 targets, at least one
+        int injections = Math.max(1, targets / 1000);
+        for (int n = 0; n < injections && targets > 1; n++) {
+            int i = random.nextInt(targets - 1);
+            if (cycles) {
+                addDependency(depends.get(i), "t" + (i + 1));
+                addDependency(depends.get(i + 1), "t" + i);
+            }
+            if (missingTargets) {
+                depends.get(i).add("missing" + n);
+            }
+        }
+
+        int files = importDepth + 1;
+        int perFile = (targets + files - 1) / files;
+        for (int file = 0; file < files; file++) {
+            String fileName = file == 0 ? "build.xml" : "import" + file + ".xml";
+            try (Writer out = Files.newBufferedWriter(dir.resolve(fileName), StandardCharsets.UTF_8)) {
+                out.write("<?xml version=\"1.0\"?>\n");
+                out.write("<project name=\"" + (file == 0 ? "main" : "import" + file) + "\""
+                        + (file == 0 ? " default=\"t0\"" : "") + " basedir=\".\">\n");
+                if (file < importDepth) {
+                    out.write("  <import file=\"import" + (file + 1) + ".xml\"/>\n");
+                }
+                int from = file * perFile;
+                int to = Math.min(targets, from + perFile);
+                for (int i = from; i < to; i++) {
+                    if (chance(random, propertyDensity)) {
+                        out.write("  <property name=\"p" + i + "\" value=\"build/" + i + "\"/>\n");
+                    }
+                    if (chance(random, macrodefDensity)) {
+                        out.write("  <macrodef name=\"m" + i + "\">\n"
+                                + "    <attribute name=\"dir\"/>\n"
+                                + "    <sequential><mkdir dir=\"@{dir}\"/></sequential>\n"
+                                + "  </macrodef>\n");
+                    }
+                }
+                for (int i = from; i < to; i++) {
+                    writeTarget(out, i, depends.get(i));
+                }
+                out.write("</project>\n");
+            }
+        }
+        return dir.resolve("build.xml");
+    }
+
+    private void writeTarget(Writer out, int i, List<String> deps) throws IOException {
+        out.write("  <target name=\"t" + i + "\"");
+        if (i % 4 == 0) {
+            out.write(" description=\"Target " + i + "\"");
+        }
+        if (!deps.isEmpty()) {
+            out.write(" depends=\"" + String.join(",", deps) + "\"");
+        }
+        if (i % 10 == 5) {
+            out.write(" if=\"flag" + i + "\"");
+        }
+        out.write(">\n");
+        out.write("    <echo message=\"t" + i + "\"/>\n");
+        out.write("  </target>\n");
+    }
+
+    private static void addDependency(List<String> deps, String name) {
+        if (!deps.contains(name)) {
+            deps.add(name);
+        }
+    }
+
+    /**
+     * Draw whether a target gets an element for a density; 1 or more means every target.
+     */
+    private static boolean chance(Random random, double density) {
+        return density > 0 && random.nextDouble() < density;
+    }
+
+    public int getTargets() {
+        return targets;
+    }
+
+    public void setTargets(int targets) {
+        this.targets = targets;
+    }
+
+    public int getFanOut() {
+        return fanOut;
+    }
+
+    public void setFanOut(int fanOut) {
+        this.fanOut = fanOut;
+    }
+
+    public int getImportDepth() {
+        return importDepth;
+    }
+
+    public void setImportDepth(int importDepth) {
+        this.importDepth = importDepth;
+    }
+
+    public double getMacrodefDensity() {
+        return macrodefDensity;
+    }
+
+    public void setMacrodefDensity(double macrodefDensity) {
+        this.macrodefDensity = macrodefDensity;
+    }
+
+    public double getPropertyDensity() {
+        return propertyDensity;
+    }
+
+    public void setPropertyDensity(double propertyDensity) {
+        this.propertyDensity = propertyDensity;
+    }
+
+    public boolean isCycles() {
+        return cycles;
+    }
+
+    public void setCycles(boolean cycles) {
+        this.cycles = cycles;
+    }
+
+    public boolean isMissingTargets() {
+        return missingTargets;
+    }
+
+    public void setMissingTargets(boolean missingTargets) {
+        this.missingTargets = missingTargets;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
@@ -0,0 +1,268 @@
+package com.vscode.ant;
+
+import com.google.gson.Gson;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches build files and everything they were built from (imports, includes,
+ * property files) with a {@link WatchService}, and re-parses a build file when
+ * one of those files changes.
+ *
+ * <p>Events are debounced: after the first event the watcher keeps collecting
+ * until no new event arrived for {@link #QUIET_MILLIS} (or {@link #MAX_DELAY_MILLIS}
+ * passed), so a checkout touching hundreds of files causes one re-parse per
+ * affected build file. Re-parsing goes through the {@link ParseCache}, and the
+ * listener is only called when the result actually changed.</p>
+ */
+public class BuildFileWatcher implements Closeable {
+
+    static final long QUIET_MILLIS = 200;
+    static final long MAX_DELAY_MILLIS = 2000;
+
+    /**
+     * Receives re-parsed build files. Called on the watcher thread.
+     */
+    public interface Listener {
+        void changed(File buildFile, AntBuildInfo buildInfo, Throwable error);
+    }
+
+    private final ParseCache cache;
+    private final Listener listener;
+    private final WatchService watchService;
+    private final Thread thread;
+    private final Gson gson = AntBuildInfoAdapter.createGson();
+
+    // Guarded by this
+    private final Map<Path, Boolean> watched = new HashMap<>();
+    private final Map<Path, AntBuildInfo> lastResults = new HashMap<>();
+    private final Map<Path, Set<Path>> sourcesByBuildFile = new HashMap<>();
+    private final Map<Path, Set<Path>> buildFilesBySource = new HashMap<>();
+    private final Map<Path, WatchKey> directories = new HashMap<>();
+
+    public BuildFileWatcher(ParseCache cache, Listener listener) throws IOException {
+        this.cache = cache;
+        this.listener = listener;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.thread = new Thread(this::run, "ant-build-file-watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Start watching a build file and return its current parse result.
+     * A build file that fails to parse is still watched, so fixing it triggers an update.
+     */
+    public AntBuildInfo watch(File buildFile, boolean outline) throws IOException {
+        Path key = normalize(buildFile.getPath());
+        AntBuildInfo buildInfo;
+        try {
+            buildInfo = cache.get(buildFile, outline);
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                watched.put(key, outline);
+                lastResults.remove(key);
+                index(key, Collections.singletonList(buildFile.getPath()));
+            }
+            throw e;
+        }
+        synchronized (this) {
+            watched.put(key, outline);
+            lastResults.put(key, buildInfo);
+            index(key, buildInfo.getSourceFiles());
+        }
+        return buildInfo;
+    }
+
+    /**
+     * Stop watching a build file.
+     */
+    public synchronized void unwatch(File buildFile) {
+        Path key = normalize(buildFile.getPath());
+        watched.remove(key);
+        lastResults.remove(key);
+        index(key, Collections.emptyList());
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                Set<Path> changed = new HashSet<>();
+                boolean overflow = collect(watchService.take(), changed);
+
+                long deadline = System.currentTimeMillis() + MAX_DELAY_MILLIS;
+                WatchKey next;
+                while (System.currentTimeMillis() < deadline
+                        && (next = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= collect(next, changed);
+                }
+
+                for (Map.Entry<Path, Boolean> buildFile : affected(changed, overflow).entrySet()) {
+                    reparse(buildFile.getKey(), buildFile.getValue());
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    private boolean collect(WatchKey key, Set<Path> changed) {
+        boolean overflow = false;
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+            } else {
+                changed.add(dir.resolve((Path) event.context()).toAbsolutePath().normalize());
+            }
+        }
+        key.reset();
+        return overflow;
+    }
+
+    private synchronized Map<Path, Boolean> affected(Set<Path> changed, boolean overflow) {
+        if (overflow) {
+            return new LinkedHashMap<>(watched);
+        }
+        Map<Path, Boolean> affected = new LinkedHashMap<>();
+        for (Path path : changed) {
+            for (Map.Entry<Path, Set<Path>> source : buildFilesBySource.entrySet()) {
+                // A created directory may hold a source whose own directory isn't watched yet
+                if (source.getKey().equals(path)
+                        || (source.getKey().startsWith(path) && !directories.containsKey(source.getKey().getParent()))) {
+                    for (Path buildFile : source.getValue()) {
+                        Boolean outline = watched.get(buildFile);
+                        if (outline != null) {
+                            affected.put(buildFile, outline);
+                        }
+                    }
+                }
+            }
+        }
+        return affected;
+    }
+
+    private void reparse(Path buildFile, boolean outline) {
+        AntBuildInfo buildInfo;
+        try {
+            buildInfo = cache.get(buildFile.toFile(), outline);
+        } catch (Exception | LinkageError | StackOverflowError e) {
+            // Keeps the watcher thread alive, e.g. for a deeply nested build file
+            synchronized (this) {
+                if (!watched.containsKey(buildFile)) {
+                    return;
+                }
+                lastResults.remove(buildFile);
+                // The sources stay the same, but a deleted directory now needs its ancestor watched
+                updateDirectories();
+            }
+            listener.changed(buildFile.toFile(), null, e);
+            return;
+        }
+
+        synchronized (this) {
+            if (!watched.containsKey(buildFile)) {
+                return;
+            }
+            AntBuildInfo previous = lastResults.put(buildFile, buildInfo);
+            index(buildFile, buildInfo.getSourceFiles());
+            if (previous == buildInfo
+                    || (previous != null && gson.toJsonTree(previous).equals(gson.toJsonTree(buildInfo)))) {
+                return;
+            }
+        }
+        listener.changed(buildFile.toFile(), buildInfo, null);
+    }
+
+    /**
+     * Replace the source files recorded for a build file and watch the directories they live in.
+     */
+    private void index(Path buildFile, List<String> sourceFiles) {
+        for (Path source : sourcesByBuildFile.getOrDefault(buildFile, Collections.emptySet())) {
+            Set<Path> buildFiles = buildFilesBySource.get(source);
+            if (buildFiles != null) {
+                buildFiles.remove(buildFile);
+                if (buildFiles.isEmpty()) {
+                    buildFilesBySource.remove(source);
+                }
+            }
+        }
+
+        Set<Path> sources = new HashSet<>();
+        if (sourceFiles != null && !sourceFiles.isEmpty()) {
+            sources.add(buildFile);
+            for (String sourceFile : sourceFiles) {
+                sources.add(normalize(sourceFile));
+            }
+        }
+        if (sources.isEmpty()) {
+            sourcesByBuildFile.remove(buildFile);
+        } else {
+            sourcesByBuildFile.put(buildFile, sources);
+        }
+        for (Path source : sources) {
+            buildFilesBySource.computeIfAbsent(source, s -> new HashSet<>()).add(buildFile);
+        }
+
+        updateDirectories();
+    }
+
+    /**
+     * Watch the directory of every source file, or its nearest existing ancestor while the
+     * directory doesn't exist, so e.g. an optional import is picked up once it is created.
+     */
+    private void updateDirectories() {
+        Set<Path> needed = new HashSet<>();
+        for (Path source : buildFilesBySource.keySet()) {
+            Path dir = source.getParent();
+            while (dir != null && !Files.isDirectory(dir)) {
+                dir = dir.getParent();
+            }
+            if (dir != null) {
+                needed.add(dir);
+            }
+        }
+
+        Iterator<Map.Entry<Path, WatchKey>> it = directories.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Path, WatchKey> entry = it.next();
+            if (!needed.contains(entry.getKey()) || !entry.getValue().isValid()) {
+                entry.getValue().cancel();
+                it.remove();
+            }
+        }
+        for (Path dir : needed) {
+            if (!directories.containsKey(dir)) {
+                try {
+                    directories.put(dir, dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE));
+                } catch (IOException | ClosedWatchServiceException e) {
+                    // Directory vanished or watcher closed; picked up again on the next re-index
+                }
+            }
+        }
+    }
+
+    private static Path normalize(String path) {
+        return Paths.get(path).toAbsolutePath().normalize();
+    }
+}
@@ -0,0 +1,32 @@
+package com.vscode.ant;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes an {@link AntBuildInfo} as JSON straight to a stream, one target at a time,
+ * instead of building the whole document as a String first. The output has the same
+ * fields, order and null handling as {@code new Gson().toJson(buildInfo)}.
+ */
+public class BuildInfoWriter {
+
+    private final JsonWriter writer;
+    private final AntBuildInfoAdapter adapter = new AntBuildInfoAdapter();
+
+    /**
+     * @param pretty indent with two spaces like {@code GsonBuilder.setPrettyPrinting()}
+     */
+    public BuildInfoWriter(Writer out, boolean pretty) {
+        this.writer = new JsonWriter(out);
+        if (pretty) {
+            writer.setIndent("  ");
+        }
+    }
+
+    public void write(AntBuildInfo buildInfo) throws IOException {
+        adapter.write(writer, buildInfo);
+        writer.flush();
+    }
+}
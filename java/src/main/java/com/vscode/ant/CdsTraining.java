@@ -0,0 +1,135 @@
+package com.vscode.ant;
+
+import com.vscode.ant.run.BuildEventStream;
+import com.vscode.ant.run.BuildRunner;
+import com.vscode.ant.run.BuildTrace;
+import com.vscode.ant.run.DurationHistory;
+import org.apache.tools.ant.Project;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Training run for the AppCDS archive the extension builds on the user's machine with
+ * JDK 13 to 18 (later JDKs create it with {@code -XX:+AutoCreateSharedArchive}).
+ * Exercises the code paths the extension uses (full and outline parsing, the
+ * daemon with its cache snapshot, batch mode, JSON output, in-process runs with their
+ * trace and duration history) on a generated
+ * build file tree, so their classes end up in the archive.
+ *
+ * <p>Writes the {@code java.runtime.version} of the training JVM to the given
+ * file; a dynamic archive only works on exactly that JVM, so launchers compare
+ * it with the runtime they are about to start before passing the archive.</p>
+ */
+public class CdsTraining {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java -XX:ArchiveClassesAtExit=<archive> -cp ant-parser.jar com.vscode.ant.CdsTraining <version file>");
+            System.exit(1);
+        }
+
+        Path dir = Files.createTempDirectory("ant-parser-cds");
+        PrintStream sink = new PrintStream(OutputStream.nullOutputStream(), false, "UTF-8");
+        try {
+            File buildFile = writeTrainingFiles(dir).toFile();
+
+            for (boolean outline : new boolean[] {false, true}) {
+                AntBuildInfo buildInfo = AntParser.parseBuildFile(buildFile, outline);
+                Writer out = new OutputStreamWriter(sink, StandardCharsets.UTF_8);
+                new BuildInfoWriter(out, outline).write(buildInfo);
+            }
+
+            String path = buildFile.getAbsolutePath().replace("\\", "\\\\");
+            String requests = "{\"id\":1,\"command\":\"ping\"}\n"
+                    + "{\"id\":2,\"command\":\"parse\",\"buildFile\":\"" + path + "\"}\n"
+                    + "{\"id\":3,\"command\":\"parse\",\"buildFile\":\"" + path + "\",\"outline\":true}\n"
+                    + "{\"id\":4,\"command\":\"parse\",\"buildFile\":\"" + path + "\"}\n"
+                    + "{\"id\":5,\"command\":\"executionOrder\",\"buildFile\":\"" + path + "\",\"target\":\"t199\"}\n"
+                    + "{\"id\":6,\"command\":\"dependencies\",\"buildFile\":\"" + path + "\",\"target\":\"t199\"}\n"
+                    + "{\"id\":7,\"command\":\"impact\",\"buildFile\":\"" + path + "\",\"target\":\"t0\"}\n"
+                    + "{\"id\":8,\"command\":\"plan\",\"buildFile\":\"" + path + "\",\"targets\":[\"t199\",\"t150\"],"
+                    + "\"properties\":{\"flag5\":\"true\"}}\n"
+                    + "{\"id\":12,\"command\":\"predict\",\"buildFile\":\"" + path + "\",\"targets\":[\"t199\"]}\n"
+                    + "{\"id\":13,\"command\":\"history\",\"buildFile\":\"" + path + "\"}\n"
+                    + "{\"id\":9,\"command\":\"invalidate\"}\n"
+                    + "{\"id\":10,\"command\":\"parse\",\"buildFile\":\"missing.xml\"}\n"
+                    + "{\"id\":11,\"command\":\"shutdown\"}\n";
+            new ParserServer(new ByteArrayInputStream(requests.getBytes(StandardCharsets.UTF_8)), sink,
+                    dir.resolve("cache.bin"), dir.resolve("history.bin")).run();
+            ParseCache cache = new ParseCache();
+            cache.load(dir.resolve("cache.bin"));
+
+            BatchParser.fromArgs(new String[] {"--threads", "2", path, dir.resolve("extra.xml").toString()},
+                    new ByteArrayInputStream(new byte[0])).run(sink);
+
+            // In-process runs, directly rather than through the server, which runs them in the background
+            BuildTrace trace = new BuildTrace();
+            try (BuildEventStream events = new BuildEventStream(sink::println, Project.MSG_VERBOSE,
+                    BuildEventStream.DEFAULT_BATCH_SIZE, BuildEventStream.DEFAULT_FLUSH_MILLIS)) {
+                new BuildRunner(buildFile, Collections.singletonList("t10"), Collections.emptyMap()).run(events, trace);
+            }
+            trace.writeChromeTrace(new OutputStreamWriter(sink, StandardCharsets.UTF_8));
+            sink.println(trace.criticalPath().toJson());
+            DurationHistory history = new DurationHistory(dir.resolve("history.bin"));
+            history.record(buildFile.getAbsolutePath(), trace);
+            history.compact();
+            history.predict(buildFile.getAbsolutePath(), trace.criticalPath().getTargets());
+        } catch (Exception e) {
+            // A partial training run still produces a usable archive
+            System.err.println("CDS training run failed: " + e);
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+
+        Files.write(Paths.get(args[0]),
+                Arrays.asList(System.getProperty("java.runtime.version")), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A generated build tree plus a file using the remaining top-level features
+     * (includes, property files, optional imports, dirname).
+     */
+    static Path writeTrainingFiles(Path dir) throws IOException {
+        BuildFileGenerator generator = new BuildFileGenerator();
+        generator.setTargets(200);
+        generator.setFanOut(3);
+        generator.setImportDepth(2);
+        generator.setPropertyDensity(0.2);
+        generator.setMacrodefDensity(0.05);
+        Path buildFile = generator.generate(dir);
+
+        Files.write(dir.resolve("extra.properties"),
+                Arrays.asList("extra.dir=build/extra", "extra.name=extra"), StandardCharsets.UTF_8);
+        Files.write(dir.resolve("extra.xml"), Arrays.asList(
+                "<?xml version=\"1.0\"?>",
+                "<project name=\"extra\" default=\"all\">",
+                "  <description>CDS training build file</description>",
+                "  <property file=\"extra.properties\"/>",
+                "  <property environment=\"env\"/>",
+                "  <property name=\"out\" location=\"${extra.dir}/out\"/>",
+                "  <dirname property=\"extra.base\" file=\"${ant.file}\"/>",
+                "  <include file=\"import1.xml\" as=\"inc\"/>",
+                "  <import file=\"does-not-exist.xml\" optional=\"true\"/>",
+                "  <target name=\"all\" depends=\"inc.t1\" description=\"${extra.name}\" unless=\"skip\">",
+                "    <echo message=\"${out}\"/>",
+                "  </target>",
+                "</project>"), StandardCharsets.UTF_8);
+        return buildFile;
+    }
+}
@@ -0,0 +1,63 @@
+package com.vscode.ant;
+
+import java.util.List;
+
+/**
+ * A problem in the target dependency graph that makes Ant fail before running
+ * anything: a dependency cycle or a dependency on a target that does not exist.
+ */
+public class DependencyProblem {
+
+    public static final String CYCLE = "cycle";
+    public static final String MISSING_TARGET = "missingTarget";
+
+    private String kind;
+    private String message;
+    private List<String> targets;
+    private String missingTarget;
+
+    /**
+     * {@link #CYCLE} or {@link #MISSING_TARGET}.
+     */
+    public String getKind() {
+        return kind;
+    }
+
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    /**
+     * The message Ant fails with, e.g. {@code Circular dependency: a <- b <- a}.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    /**
+     * For a cycle, all targets that are part of it; for a missing target,
+     * the targets whose {@code depends} name it.
+     */
+    public List<String> getTargets() {
+        return targets;
+    }
+
+    public void setTargets(List<String> targets) {
+        this.targets = targets;
+    }
+
+    /**
+     * The name of the target that does not exist; null for cycles.
+     */
+    public String getMissingTarget() {
+        return missingTarget;
+    }
+
+    public void setMissingTarget(String missingTarget) {
+        this.missingTarget = missingTarget;
+    }
+}
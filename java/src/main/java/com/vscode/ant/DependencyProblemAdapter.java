@@ -0,0 +1,64 @@
+package com.vscode.ant;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+import static com.vscode.ant.AntTargetAdapter.readString;
+import static com.vscode.ant.AntTargetAdapter.readStrings;
+import static com.vscode.ant.AntTargetAdapter.writeString;
+import static com.vscode.ant.AntTargetAdapter.writeStrings;
+
+/**
+ * Reflection-free Gson adapter for {@link DependencyProblem}. Writes the same fields in
+ * the same order as Gson's reflective adapter, leaving out null values.
+ */
+public class DependencyProblemAdapter extends TypeAdapter<DependencyProblem> {
+
+    @Override
+    public void write(JsonWriter out, DependencyProblem problem) throws IOException {
+        if (problem == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        writeString(out, "kind", problem.getKind());
+        writeString(out, "message", problem.getMessage());
+        writeStrings(out, "targets", problem.getTargets());
+        writeString(out, "missingTarget", problem.getMissingTarget());
+        out.endObject();
+    }
+
+    @Override
+    public DependencyProblem read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        DependencyProblem problem = new DependencyProblem();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "kind":
+                    problem.setKind(readString(in));
+                    break;
+                case "message":
+                    problem.setMessage(readString(in));
+                    break;
+                case "targets":
+                    problem.setTargets(readStrings(in));
+                    break;
+                case "missingTarget":
+                    problem.setMissingTarget(readString(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return problem;
+    }
+}
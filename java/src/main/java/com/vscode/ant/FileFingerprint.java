@@ -0,0 +1,96 @@
+package com.vscode.ant;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Size, modification time and content hash of a file a parse result depended on.
+ * A missing file is fingerprinted too (size -1), so that creating it later
+ * invalidates the result just like editing it would.
+ */
+public class FileFingerprint {
+    private final String path;
+    private final long size;
+    private final long lastModified;
+    private final byte[] hash;
+
+    public FileFingerprint(String path, long size, long lastModified, byte[] hash) {
+        this.path = path;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.hash = hash;
+    }
+
+    /**
+     * Fingerprint the current state of a file.
+     */
+    public static FileFingerprint of(File file) throws IOException {
+        if (!file.isFile()) {
+            return new FileFingerprint(file.getPath(), -1, 0, new byte[0]);
+        }
+        return new FileFingerprint(file.getPath(), file.length(), file.lastModified(), hash(file));
+    }
+
+    /**
+     * Check whether the file still matches this fingerprint.
+     * Size and modification time are compared first; the content is only hashed
+     * when the size is unchanged but the modification time moved (e.g. after a checkout).
+     * @return this fingerprint if unchanged, a refreshed fingerprint if only the
+     *         modification time changed, or null if the file changed
+     */
+    public FileFingerprint revalidate() throws IOException {
+        File file = new File(path);
+        if (!file.isFile()) {
+            return size == -1 ? this : null;
+        }
+        long currentSize = file.length();
+        long currentModified = file.lastModified();
+        if (currentSize != size) {
+            return null;
+        }
+        if (currentModified == lastModified) {
+            return this;
+        }
+        byte[] currentHash = hash(file);
+        return Arrays.equals(currentHash, hash)
+                ? new FileFingerprint(path, currentSize, currentModified, currentHash) : null;
+    }
+
+    private static byte[] hash(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public byte[] getHash() {
+        return hash;
+    }
+}
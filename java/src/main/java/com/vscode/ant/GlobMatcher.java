@@ -0,0 +1,153 @@
+package com.vscode.ant;
+
+import java.io.File;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Exclude globs compiled once into a matcher for relative paths with {@code /} separators.
+ *
+ * <p>A glob without {@code /} matches a file or directory name at any depth
+ * ({@code node_modules}, {@code *.tmp}); any other glob, or one starting with {@code /}
+ * or {@code ./}, matches the whole relative path,
+ * with {@code **} spanning directories ({@code build/**}, {@code **}{@code /generated/*.xml}).
+ * {@code *} and {@code ?} stay within one name and {@code {a,b}} matches either
+ * alternative. A trailing {@code /**} also matches the directory itself, so it is
+ * skipped without being listed.</p>
+ *
+ * <p>Literal names go into a hash set; all other globs are combined into one regular
+ * expression for names and one for paths, so a check costs at most one set lookup and
+ * two regex matches however many globs there are. Matching ignores case on Windows.</p>
+ */
+final class GlobMatcher {
+
+    private static final boolean IGNORE_CASE = File.separatorChar == '\\';
+
+    private final Set<String> names = new HashSet<>();
+    private final Pattern namePattern;
+    private final Pattern pathPattern;
+
+    GlobMatcher(Collection<String> globs) {
+        List<String> nameRegexes = new ArrayList<>();
+        List<String> pathRegexes = new ArrayList<>();
+        for (String glob : globs) {
+            String normalized = glob.trim().replace('\\', '/');
+            // A leading "/" or "./" anchors the glob at the root
+            boolean anchored = normalized.startsWith("/") || normalized.startsWith("./");
+            while (normalized.startsWith("./") || normalized.startsWith("/")) {
+                normalized = normalized.substring(normalized.charAt(0) == '.' ? 2 : 1);
+            }
+            if (normalized.endsWith("/")) {
+                normalized = normalized.substring(0, normalized.length() - 1);
+            }
+            // "**/name" is the same as "name"
+            String name = normalized;
+            while (name.startsWith("**/")) {
+                name = name.substring(3);
+            }
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!anchored && name.indexOf('/') < 0) {
+                normalized = name;
+                if (isLiteral(normalized)) {
+                    names.add(IGNORE_CASE ? normalized.toLowerCase(Locale.ROOT) : normalized);
+                } else {
+                    nameRegexes.add(toRegex(normalized));
+                }
+            } else {
+                pathRegexes.add(toRegex(normalized));
+            }
+        }
+        namePattern = compile(nameRegexes);
+        pathPattern = compile(pathRegexes);
+    }
+
+    /**
+     * @param relativePath path below the root, separated by {@code /}
+     * @param name the last element of {@code relativePath}
+     */
+    boolean matches(String relativePath, String name) {
+        if (!names.isEmpty() && names.contains(IGNORE_CASE ? name.toLowerCase(Locale.ROOT) : name)) {
+            return true;
+        }
+        if (namePattern != null && namePattern.matcher(name).matches()) {
+            return true;
+        }
+        return pathPattern != null && pathPattern.matcher(relativePath).matches();
+    }
+
+    private static boolean isLiteral(String glob) {
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' || c == '?' || c == '{') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Pattern compile(List<String> regexes) {
+        if (regexes.isEmpty()) {
+            return null;
+        }
+        return Pattern.compile(String.join("|", regexes), IGNORE_CASE ? Pattern.CASE_INSENSITIVE : 0);
+    }
+
+    static String toRegex(String glob) {
+        StringBuilder regex = new StringBuilder("(?:");
+        int braces = 0;
+        int i = 0;
+        while (i < glob.length()) {
+            char c = glob.charAt(i);
+            if (c == '*' && glob.startsWith("**", i)) {
+                if (glob.startsWith("**/", i)) {
+                    regex.append("(?:.*/)?");
+                    i += 3;
+                } else if (i > 0 && glob.charAt(i - 1) == '/' && i + 2 == glob.length()) {
+                    // Trailing "/**": drop the '/' already written so "dir" itself matches too
+                    regex.setLength(regex.length() - 1);
+                    regex.append("(?:/.*)?");
+                    i += 2;
+                } else {
+                    regex.append(".*");
+                    i += 2;
+                }
+                continue;
+            }
+            switch (c) {
+                case '*':
+                    regex.append("[^/]*");
+                    break;
+                case '?':
+                    regex.append("[^/]");
+                    break;
+                case '{':
+                    braces++;
+                    regex.append("(?:");
+                    break;
+                case '}':
+                    if (braces > 0) {
+                        braces--;
+                        regex.append(')');
+                    } else {
+                        regex.append("\\}");
+                    }
+                    break;
+                case ',':
+                    regex.append(braces > 0 ? "|" : ",");
+                    break;
+                default:
+                    if ("\\.[]()^$+|".indexOf(c) >= 0) {
+                        regex.append('\\');
+                    }
+                    regex.append(c);
+            }
+            i++;
+        }
+        for (; braces > 0; braces--) {
+            regex.append(')');
+        }
+        return regex.append(')').toString();
+    }
+}
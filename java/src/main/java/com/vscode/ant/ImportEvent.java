@@ -0,0 +1,22 @@
+package com.vscode.ant;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event around reading an imported or included file.
+ */
+@Name("com.vscode.ant.Import")
+@Label("Import Resolution")
+@Category("Ant Parser")
+@Description("Reads a file pulled in by an import or include, including the files it imports in turn")
+class ImportEvent extends Event {
+    @Label("File")
+    String file;
+
+    @Label("Importing File")
+    String importingFile;
+}
@@ -0,0 +1,96 @@
+package com.vscode.ant;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.UnknownElement;
+import org.apache.tools.ant.util.FileUtils;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Build listener timing the {@code <import>} and {@code <include>} tasks of a full
+ * Ant parse, for {@link ParseDiagnostics} and as {@link ImportEvent}s.
+ */
+class ImportListener implements BuildListener {
+
+    private final ParseDiagnostics diagnostics;
+    private final Deque<Long> starts = new ArrayDeque<>();
+    private final Deque<ImportEvent> events = new ArrayDeque<>();
+
+    ImportListener(ParseDiagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * Whether a parse needs this listener at all.
+     */
+    static boolean isNeeded(ParseDiagnostics diagnostics) {
+        return diagnostics.isEnabled() || new ImportEvent().isEnabled();
+    }
+
+    @Override
+    public void taskStarted(BuildEvent event) {
+        if (isImport(event.getTask())) {
+            ImportEvent importEvent = new ImportEvent();
+            importEvent.begin();
+            events.push(importEvent);
+            starts.push(System.nanoTime());
+        }
+    }
+
+    @Override
+    public void taskFinished(BuildEvent event) {
+        Task task = event.getTask();
+        if (!isImport(task) || starts.isEmpty()) {
+            return;
+        }
+        long nanos = System.nanoTime() - starts.pop();
+        ImportEvent importEvent = events.pop();
+        importEvent.end();
+
+        String importing = task.getLocation().getFileName();
+        String file = importedFile((UnknownElement) task, event.getProject(), importing);
+        diagnostics.importFile(file, nanos);
+        if (importEvent.shouldCommit()) {
+            importEvent.file = file;
+            importEvent.importingFile = importing;
+            importEvent.commit();
+        }
+    }
+
+    /**
+     * The imported file, resolved relative to the importing file like ImportTask does.
+     */
+    static String importedFile(UnknownElement task, Project project, String importing) {
+        Object file = task.getWrapper().getAttributeMap().get("file");
+        if (file == null) {
+            // Resource collection import
+            return task.getLocation().toString();
+        }
+        File dir = importing != null ? new File(importing).getParentFile() : project.getBaseDir();
+        return FileUtils.getFileUtils().resolveFile(dir, project.replaceProperties(file.toString())).getAbsolutePath();
+    }
+
+    static boolean isImport(Task task) {
+        if (!(task instanceof UnknownElement)) {
+            return false;
+        }
+        String type = ((UnknownElement) task).getTaskType();
+        return "import".equals(type) || "include".equals(type);
+    }
+
+    @Override
+    public void messageLogged(BuildEvent event) {}
+    @Override
+    public void buildStarted(BuildEvent event) {}
+    @Override
+    public void buildFinished(BuildEvent event) {}
+    @Override
+    public void targetStarted(BuildEvent event) {}
+    @Override
+    public void targetFinished(BuildEvent event) {}
+}
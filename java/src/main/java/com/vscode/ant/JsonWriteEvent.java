@@ -0,0 +1,22 @@
+package com.vscode.ant;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event around writing an {@link AntBuildInfo} as JSON.
+ */
+@Name("com.vscode.ant.JsonWrite")
+@Label("JSON Write")
+@Category("Ant Parser")
+@Description("Serializes a parsed build file to JSON")
+class JsonWriteEvent extends Event {
+    @Label("Build File")
+    String buildFile;
+
+    @Label("Target Count")
+    int targetCount;
+}
@@ -0,0 +1,113 @@
+package com.vscode.ant;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Checks that a native-image build of the parser prints exactly what the JVM
+ * parser prints, for the full and outline parsers over a fixture corpus: the
+ * CDS training build files plus generated trees with deep imports, long
+ * {@code depends} lists, cycles and missing targets. Run by the {@code native}
+ * Maven profile after the image is built; exits with 1 on any difference.
+ */
+public class NativeImageCheck {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: java -cp ant-parser.jar com.vscode.ant.NativeImageCheck <native executable>");
+            System.exit(1);
+        }
+        String executable = args[0];
+
+        Path dir = Files.createTempDirectory("ant-parser-native");
+        int failures = 0;
+        int checked = 0;
+        try {
+            for (File buildFile : writeCorpus(dir)) {
+                for (boolean outline : new boolean[] {false, true}) {
+                    String expected = jvmOutput(buildFile, outline);
+                    String actual = nativeOutput(executable, buildFile, outline);
+                    checked++;
+                    if (!expected.equals(actual)) {
+                        failures++;
+                        System.err.println("Output differs for " + buildFile + (outline ? " (outline)" : ""));
+                    }
+                }
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+
+        System.out.println("Native image check: " + (checked - failures) + "/" + checked + " outputs identical");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static List<File> writeCorpus(Path dir) throws IOException {
+        List<File> buildFiles = new ArrayList<>();
+        Path training = Files.createDirectories(dir.resolve("training"));
+        buildFiles.add(CdsTraining.writeTrainingFiles(training).toFile());
+        buildFiles.add(training.resolve("extra.xml").toFile());
+
+        int[][] shapes = {
+                // targets, fan-out, import depth
+                {10, 1, 0},
+                {2000, 5, 3},
+                {1000, 100, 0},
+                {500, 2, 25},
+        };
+        for (int i = 0; i < shapes.length; i++) {
+            BuildFileGenerator generator = new BuildFileGenerator();
+            generator.setTargets(shapes[i][0]);
+            generator.setFanOut(shapes[i][1]);
+            generator.setImportDepth(shapes[i][2]);
+            generator.setPropertyDensity(0.3);
+            generator.setMacrodefDensity(0.1);
+            generator.setCycles(i % 2 == 1);
+            generator.setMissingTargets(i >= 2);
+            buildFiles.add(generator.generate(dir.resolve("generated" + i)).toFile());
+        }
+        return buildFiles;
+    }
+
+    /**
+     * What {@code java -jar ant-parser.jar [--outline] <buildFile>} prints.
+     */
+    private static String jvmOutput(File buildFile, boolean outline) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Writer out = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
+        new BuildInfoWriter(out, false).write(AntParser.parseBuildFile(buildFile, outline));
+        out.write(System.lineSeparator());
+        out.flush();
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String nativeOutput(String executable, File buildFile, boolean outline) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(executable);
+        if (outline) {
+            command.add("--outline");
+        }
+        command.add(buildFile.getPath());
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        process.getOutputStream().close();
+        try (InputStream in = process.getInputStream()) {
+            String output = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            return process.waitFor() == 0 ? output : "exit code " + process.exitValue();
+        }
+    }
+}
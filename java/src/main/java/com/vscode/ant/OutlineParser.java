@@ -0,0 +1,641 @@
+package com.vscode.ant;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.ProjectHelper;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.util.FileUtils;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Fast "outline" parser that reads target names, descriptions, {@code depends},
+ * {@code if} and {@code unless} with a streaming StAX pass over the build file
+ * and its {@code <import>}/{@code <include>} files, without creating an Ant
+ * {@code Project} or instantiating any task.
+ *
+ * <p>Target naming follows ProjectHelper2: main file targets win over imported
+ * ones, imported targets are also registered under their prefixed name and
+ * included targets only under their prefixed name. Top-level {@code <property>}
+ * and {@code <dirname>} elements are evaluated so that import paths such as
+ * {@code ${common.dir}/build-common.xml} resolve. Anything that needs real task
+ * execution (custom tasks, conditions, nested resource collections in imports)
+ * is ignored.</p>
+ */
+public class OutlineParser {
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+    private static final FileUtils FILE_UTILS = FileUtils.getFileUtils();
+
+    private final File buildFile;
+    private final File baseDir;
+    private final ParseDiagnostics diagnostics;
+    private final Map<String, String> properties = new HashMap<>();
+    private final Map<String, AntTarget> targets = new HashMap<>();
+    private final Set<AntTarget> extensionPoints = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final List<String[]> extensionStack = new ArrayList<>();
+    private final List<File> importStack = new ArrayList<>();
+    // Files of the imports and includes in progress
+    private final Deque<File> parsing = new ArrayDeque<>();
+    private final Set<String> sourceFiles = new LinkedHashSet<>();
+    private final StringBuilder description = new StringBuilder();
+
+    private String projectName;
+    private String defaultTarget;
+
+    // Mirrors ProjectHelper's thread-local import state and AntXMLContext's current project name
+    private String targetPrefix;
+    private String prefixSeparator = ".";
+    private boolean inIncludeMode;
+    private String currentProjectName;
+
+    private OutlineParser(File buildFile, ParseDiagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+        this.buildFile = FILE_UTILS.normalize(buildFile.getAbsolutePath());
+        this.baseDir = this.buildFile.getParentFile();
+    }
+
+    /**
+     * Parse the outline of an Ant build file.
+     */
+    public static AntBuildInfo parseBuildFile(File buildFile) {
+        return parseBuildFile(buildFile, ParseDiagnostics.NONE);
+    }
+
+    /**
+     * Parse the outline of an Ant build file, recording phase and import timings.
+     */
+    public static AntBuildInfo parseBuildFile(File buildFile, ParseDiagnostics diagnostics) {
+        return new OutlineParser(buildFile, diagnostics).parse();
+    }
+
+    private AntBuildInfo parse() {
+        for (String name : System.getProperties().stringPropertyNames()) {
+            properties.put(name, System.getProperty(name));
+        }
+        properties.put("ant.file", buildFile.getPath());
+        properties.put("basedir", baseDir.getPath());
+        String antHome = System.getenv("ANT_HOME");
+        if (antHome != null && !antHome.isEmpty()) {
+            properties.put("ant.home", antHome);
+        }
+        Map<String, String> initialProperties = new HashMap<>(properties);
+
+        long phaseStart = System.nanoTime();
+        parseFile(buildFile, false);
+        resolveExtensionOfAttributes();
+        diagnostics.phase("parse", phaseStart);
+
+        phaseStart = System.nanoTime();
+        TargetExtractionEvent extraction = new TargetExtractionEvent();
+        extraction.begin();
+        AntBuildInfo buildInfo = new AntBuildInfo();
+        buildInfo.setProjectName(projectName);
+        buildInfo.setDefaultTarget(defaultTarget);
+        buildInfo.setBaseDir(baseDir.getPath());
+        buildInfo.setDescription(description.toString());
+        buildInfo.setBuildFile(buildFile.getPath());
+        buildInfo.setSourceFiles(new ArrayList<>(sourceFiles));
+        Map<String, String> defined = new HashMap<>();
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            if (!property.getValue().equals(initialProperties.get(property.getKey()))) {
+                defined.put(property.getKey(), property.getValue());
+            }
+        }
+        buildInfo.setProperties(defined);
+
+        List<AntTarget> result = new ArrayList<>(targets.size());
+        for (Map.Entry<String, AntTarget> entry : targets.entrySet()) {
+            AntTarget target = entry.getValue();
+            if (target.getDependencies() == null) {
+                target.setDependencies(new ArrayList<>());
+            }
+            target.setDefault(target.getName().equals(defaultTarget));
+            result.add(target);
+        }
+
+        // Sort targets alphabetically
+        result.sort(Comparator.comparing(AntTarget::getName));
+        buildInfo.setTargets(result);
+        diagnostics.phase("extractTargets", phaseStart);
+
+        phaseStart = System.nanoTime();
+        AntParser.setDependencyProblems(buildInfo);
+        diagnostics.phase("dependencyGraph", phaseStart);
+        extraction.end();
+        if (extraction.shouldCommit()) {
+            extraction.buildFile = buildInfo.getBuildFile();
+            extraction.targetCount = result.size();
+            extraction.commit();
+        }
+        return buildInfo;
+    }
+
+    /**
+     * Read one build file: register its targets in document order, then run its
+     * top-level elements in order, the way ProjectHelper2 executes the implicit target.
+     */
+    private void parseFile(File file, boolean imported) {
+        importStack.add(file);
+        sourceFiles.add(file.getPath());
+        Set<String> currentTargets = new HashSet<>();
+        List<TopLevelElement> topLevel = new ArrayList<>();
+
+        try (InputStream in = new FileInputStream(file)) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(file.toURI().toString(), in);
+            try {
+                while (reader.hasNext() && reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    // skip prolog
+                }
+                if (!reader.isStartElement() || !"project".equals(reader.getLocalName())) {
+                    throw new BuildException("Unexpected element \"" + (reader.isStartElement() ? reader.getLocalName() : "")
+                            + "\" in " + file + ", expected \"project\"");
+                }
+                onProject(reader, file, imported);
+
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.END_ELEMENT) {
+                        break;
+                    }
+                    if (event != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    String tag = reader.getLocalName();
+                    boolean core = isCoreNamespace(reader.getNamespaceURI());
+                    if (core && ("target".equals(tag) || "extension-point".equals(tag))) {
+                        onTarget(reader, tag, imported, currentTargets);
+                        skipElement(reader);
+                    } else if (core && "description".equals(tag)) {
+                        String text = readText(reader);
+                        if (!imported) {
+                            topLevel.add(new TopLevelElement(tag, Collections.emptyMap(), file, text));
+                        }
+                    } else {
+                        topLevel.add(new TopLevelElement(core ? tag : null, attributes(reader), file, null));
+                        skipElement(reader);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new BuildException("Error parsing " + file + ": " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new BuildException("Error reading " + file + ": " + e.getMessage(), e);
+        }
+
+        for (TopLevelElement element : topLevel) {
+            execute(element);
+        }
+    }
+
+    private void onProject(XMLStreamReader reader, File file, boolean imported) {
+        Map<String, String> attrs = attributes(reader);
+        String name = attrs.get("name");
+        String defaultValue = attrs.get("default");
+
+        if (!imported && defaultValue != null && !defaultValue.isEmpty()) {
+            defaultTarget = defaultValue;
+        }
+        if (name != null) {
+            currentProjectName = name;
+            if (!imported) {
+                projectName = name;
+                properties.put("ant.project.name", name);
+            } else if (inIncludeMode && !name.isEmpty() && targetPrefix != null
+                    && targetPrefix.endsWith(ProjectHelper.USE_PROJECT_NAME_AS_TARGET_PREFIX)) {
+                targetPrefix = targetPrefix.replace(ProjectHelper.USE_PROJECT_NAME_AS_TARGET_PREFIX, name);
+            }
+            properties.put("ant.file." + name, file.getPath());
+            properties.put("ant.file.type." + name, "file");
+        }
+    }
+
+    /**
+     * Register a target the way ProjectHelper2.TargetHandler does.
+     */
+    private void onTarget(XMLStreamReader reader, String tag, boolean imported, Set<String> currentTargets) {
+        Map<String, String> attrs = attributes(reader);
+        String name = attrs.get("name");
+        String depends = attrs.getOrDefault("depends", "");
+        String extensionOf = attrs.get("extensionOf");
+        String onMissing = attrs.get("onMissingExtensionPoint");
+
+        if (name == null) {
+            throw new BuildException("target element appears without a name attribute");
+        }
+        if (name.isEmpty()) {
+            throw new BuildException("name attribute must not be empty");
+        }
+
+        AntTarget target = new AntTarget();
+        target.setDescription(attrs.get("description"));
+        target.setIfCondition(attrs.get("if"));
+        target.setUnlessCondition(attrs.get("unless"));
+        if ("extension-point".equals(tag)) {
+            extensionPoints.add(target);
+        }
+
+        String prefix = null;
+        boolean includeMode = imported && inIncludeMode;
+        String sep = prefixSeparator;
+
+        if (includeMode) {
+            prefix = getTargetPrefix();
+            if (prefix == null) {
+                throw new BuildException("can't include build file " + importStack.get(importStack.size() - 1)
+                        + ", no as attribute has been given and the project tag doesn't specify a name attribute");
+            }
+            name = prefix + sep + name;
+        }
+
+        if (currentTargets.contains(name)) {
+            throw new BuildException("Duplicate target '" + name + "'");
+        }
+        boolean usedTarget = false;
+        if (!targets.containsKey(name)) {
+            target.setName(name);
+            currentTargets.add(name);
+            targets.put(name, target);
+            usedTarget = true;
+        }
+
+        if (!depends.isEmpty()) {
+            List<String> dependencies = new ArrayList<>();
+            for (String dependency : Target.parseDepends(depends, name, "depends")) {
+                dependencies.add(includeMode ? prefix + sep + dependency : dependency);
+            }
+            target.setDependencies(dependencies);
+        }
+
+        if (!includeMode && imported && (prefix = getTargetPrefix()) != null) {
+            String newName = prefix + sep + name;
+            AntTarget newTarget = target;
+            if (usedTarget) {
+                newTarget = copy(target);
+                if (extensionPoints.contains(target)) {
+                    extensionPoints.add(newTarget);
+                }
+            }
+            newTarget.setName(newName);
+            currentTargets.add(newName);
+            targets.put(newName, newTarget);
+        }
+
+        if (onMissing != null && extensionOf == null) {
+            throw new BuildException("onMissingExtensionPoint attribute cannot be specified unless extensionOf is specified");
+        }
+        if (extensionOf != null) {
+            String missing = onMissing != null ? onMissing : "fail";
+            for (String extensionPoint : Target.parseDepends(extensionOf, name, "extensionOf")) {
+                extensionStack.add(new String[] {extensionPoint, target.getName(), missing,
+                        inIncludeMode ? prefix + sep : null});
+            }
+        }
+    }
+
+    /**
+     * Same as ProjectHelper.resolveExtensionOfAttributes, run once the whole import tree is read.
+     */
+    private void resolveExtensionOfAttributes() {
+        for (String[] info : extensionStack) {
+            String extensionPointName = info[0];
+            String targetName = info[1];
+            String missing = info[2];
+            String prefixAndSep = info[3];
+
+            AntTarget extensionPoint = prefixAndSep == null ? null : targets.get(prefixAndSep + extensionPointName);
+            if (extensionPoint == null) {
+                extensionPoint = targets.get(extensionPointName);
+            }
+
+            if (extensionPoint == null) {
+                if ("fail".equals(missing)) {
+                    throw new BuildException("can't add target " + targetName + " to extension-point "
+                            + extensionPointName + " because the extension-point is unknown.");
+                }
+            } else {
+                if (!extensionPoints.contains(extensionPoint)) {
+                    throw new BuildException("referenced target " + extensionPointName + " is not an extension-point");
+                }
+                if (extensionPoint.getDependencies() == null) {
+                    extensionPoint.setDependencies(new ArrayList<>());
+                }
+                extensionPoint.getDependencies().add(targetName);
+            }
+        }
+    }
+
+    /**
+     * Evaluate the top-level elements that affect the outline.
+     */
+    private void execute(TopLevelElement element) {
+        if (element.tag == null) {
+            return;
+        }
+        Map<String, String> attrs = element.attributes;
+        switch (element.tag) {
+            case "description":
+                description.append(replaceProperties(element.text));
+                break;
+            case "property":
+                executeProperty(attrs);
+                break;
+            case "dirname":
+                if (attrs.containsKey("property") && attrs.containsKey("file")) {
+                    File file = resolveFile(baseDir, replaceProperties(attrs.get("file")));
+                    String parent = file.getParent();
+                    setNewProperty(replaceProperties(attrs.get("property")), parent != null ? parent : file.getPath());
+                }
+                break;
+            case "import":
+            case "include":
+                executeImport(element, "include".equals(element.tag));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void executeProperty(Map<String, String> attrs) {
+        String name = attrs.get("name");
+        if (name != null) {
+            name = replaceProperties(name);
+            if (attrs.containsKey("value")) {
+                setNewProperty(name, replaceProperties(attrs.get("value")));
+            } else if (attrs.containsKey("location")) {
+                setNewProperty(name, resolveFile(baseDir, replaceProperties(attrs.get("location"))).getPath());
+            }
+            return;
+        }
+
+        String prefix = attrs.containsKey("prefix") ? replaceProperties(attrs.get("prefix")) : null;
+        if (prefix != null && !prefix.endsWith(".")) {
+            prefix += ".";
+        }
+
+        if (attrs.containsKey("file")) {
+            File file = resolveFile(baseDir, replaceProperties(attrs.get("file")));
+            sourceFiles.add(file.getPath());
+            if (!file.exists()) {
+                return;
+            }
+            Properties loaded = new Properties();
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                if (file.getName().endsWith(".xml")) {
+                    loaded.loadFromXML(in);
+                } else {
+                    loaded.load(in);
+                }
+            } catch (IOException e) {
+                throw new BuildException("Unable to load property file " + file + ": " + e.getMessage(), e);
+            }
+            addProperties(loaded, prefix);
+        } else if (attrs.containsKey("environment")) {
+            String environmentPrefix = replaceProperties(attrs.get("environment"));
+            if (!environmentPrefix.endsWith(".")) {
+                environmentPrefix += ".";
+            }
+            for (Map.Entry<String, String> entry : System.getenv().entrySet()) {
+                setNewProperty(environmentPrefix + entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Add the properties of a property file, resolving references between them first.
+     */
+    private void addProperties(Properties loaded, String prefix) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String key : loaded.stringPropertyNames()) {
+            values.put(key, loaded.getProperty(key));
+        }
+        for (int pass = 0; pass < values.size(); pass++) {
+            boolean changed = false;
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                String resolved = replaceProperties(entry.getValue(), values);
+                if (!resolved.equals(entry.getValue())) {
+                    entry.setValue(resolved);
+                    changed = true;
+                }
+            }
+            if (!changed) {
+                break;
+            }
+        }
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            setNewProperty(prefix == null ? entry.getKey() : prefix + entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Follow an import or include the way ImportTask does.
+     */
+    private void executeImport(TopLevelElement element, boolean includeTask) {
+        Map<String, String> attrs = element.attributes;
+        if (!attrs.containsKey("file")) {
+            // Imports of nested resource collections need a real project
+            return;
+        }
+
+        String fileName = replaceProperties(attrs.get("file"));
+        File importedFile = new File(fileName);
+        if (importedFile.isAbsolute() && importedFile.exists()) {
+            importedFile = FILE_UTILS.normalize(fileName);
+        } else {
+            importedFile = resolveFile(element.file.getParentFile(), fileName);
+        }
+
+        if (!importedFile.exists()) {
+            if (Boolean.parseBoolean(replaceProperties(attrs.getOrDefault("optional", "false")))) {
+                // Creating the file later changes the outline
+                sourceFiles.add(importedFile.getPath());
+                return;
+            }
+            throw new BuildException("Cannot find " + importedFile + " imported from " + element.file);
+        }
+        if (!includeTask && importStack.contains(importedFile)) {
+            return;
+        }
+        // An include gets a new prefix every time, so one of a file still being parsed never ends
+        if (includeTask && (importedFile.equals(buildFile) || parsing.contains(importedFile))) {
+            throw new BuildException("Cannot include " + importedFile + " from " + element.file
+                    + ": it is still being parsed, so the include would never end");
+        }
+
+        String as = attrs.containsKey("as")
+                ? replaceProperties(attrs.get("as")) : ProjectHelper.USE_PROJECT_NAME_AS_TARGET_PREFIX;
+        String separator = attrs.containsKey("prefixSeparator") ? replaceProperties(attrs.get("prefixSeparator")) : ".";
+
+        String oldPrefix = targetPrefix;
+        String oldSeparator = prefixSeparator;
+        boolean oldIncludeMode = inIncludeMode;
+        try {
+            String prefix;
+            if (includeTask && oldPrefix != null && as != null) {
+                prefix = oldPrefix + oldSeparator + as;
+            } else if (includeTask) {
+                prefix = as;
+            } else if (ProjectHelper.USE_PROJECT_NAME_AS_TARGET_PREFIX.equals(as)) {
+                prefix = oldPrefix;
+            } else {
+                prefix = as;
+            }
+            targetPrefix = prefix;
+            prefixSeparator = separator;
+            inIncludeMode = includeTask;
+
+            ImportEvent event = new ImportEvent();
+            event.begin();
+            long importStart = System.nanoTime();
+            parsing.push(importedFile);
+            try {
+                parseFile(importedFile, true);
+            } finally {
+                parsing.pop();
+            }
+            diagnostics.importFile(importedFile.getPath(), System.nanoTime() - importStart);
+            event.end();
+            if (event.shouldCommit()) {
+                event.file = importedFile.getPath();
+                event.importingFile = element.file.getPath();
+                event.commit();
+            }
+        } finally {
+            targetPrefix = oldPrefix;
+            prefixSeparator = oldSeparator;
+            inIncludeMode = oldIncludeMode;
+        }
+    }
+
+    private String getTargetPrefix() {
+        if (targetPrefix != null && !targetPrefix.isEmpty()) {
+            return targetPrefix;
+        }
+        if (currentProjectName != null && !currentProjectName.isEmpty()) {
+            return currentProjectName;
+        }
+        return null;
+    }
+
+    /**
+     * Ant properties are immutable: the first definition wins.
+     */
+    private void setNewProperty(String name, String value) {
+        properties.putIfAbsent(name, value);
+    }
+
+    private String replaceProperties(String value) {
+        return replaceProperties(value, null);
+    }
+
+    private String replaceProperties(String value, Map<String, String> local) {
+        return PropertyExpander.replaceProperties(value, name -> {
+            String resolved = properties.get(name);
+            return resolved == null && local != null ? local.get(name) : resolved;
+        });
+    }
+
+    private static File resolveFile(File dir, String fileName) {
+        return FILE_UTILS.resolveFile(dir, fileName);
+    }
+
+    private static AntTarget copy(AntTarget other) {
+        AntTarget target = new AntTarget();
+        target.setName(other.getName());
+        target.setDescription(other.getDescription());
+        target.setIfCondition(other.getIfCondition());
+        target.setUnlessCondition(other.getUnlessCondition());
+        // Like Target(Target), the copy shares its dependency list with the original
+        target.setDependencies(other.getDependencies());
+        return target;
+    }
+
+    private static boolean isCoreNamespace(String uri) {
+        return uri == null || uri.isEmpty() || ProjectHelper.ANT_CORE_URI.equals(uri);
+    }
+
+    private static Map<String, String> attributes(XMLStreamReader reader) {
+        int count = reader.getAttributeCount();
+        if (count == 0) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> attrs = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String uri = reader.getAttributeNamespace(i);
+            if (uri == null || uri.isEmpty()) {
+                attrs.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+            }
+        }
+        return attrs;
+    }
+
+    /**
+     * Collect the text content of the current element, ignoring nested elements.
+     */
+    private static String readText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (depth == 1 && (event == XMLStreamConstants.CHARACTERS
+                    || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE)) {
+                text.append(reader.getText());
+            }
+        }
+        return text.toString();
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        // Ant build files may pull in fragments through external entities
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.TRUE);
+        return factory;
+    }
+
+    /**
+     * A top-level element recorded while reading a file, evaluated once the file's targets are known.
+     */
+    private static class TopLevelElement {
+        final String tag;
+        final Map<String, String> attributes;
+        final File file;
+        final String text;
+
+        TopLevelElement(String tag, Map<String, String> attributes, File file, String text) {
+            this.tag = tag;
+            this.attributes = attributes;
+            this.file = file;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.vscode.ant;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of parse results keyed by build file, valid for as long as every file
+ * in the result's {@link AntBuildInfo#getSourceFiles() source files} (the build
+ * file, its import/include closure and the property files it loaded) keeps
+ * its fingerprint. There is no time-based expiry.
+ *
+ * <p>The cache can be saved to and restored from a {@link ParseCacheStore}
+ * snapshot so results survive restarts.</p>
+ */
+public class ParseCache {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean modified;
+
+    /**
+     * Return the cached result for a build file, parsing it again only if one of
+     * the files it depended on changed.
+     */
+    public AntBuildInfo get(File buildFile, boolean outline) throws IOException {
+        return get(buildFile, outline, ParseDiagnostics.NONE);
+    }
+
+    /**
+     * Same as {@link #get(File, boolean)}, timing the cache check and, on a miss, the parse.
+     */
+    public AntBuildInfo get(File buildFile, boolean outline, ParseDiagnostics diagnostics) throws IOException {
+        String key = key(buildFile, outline);
+        long phaseStart = System.nanoTime();
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            Entry revalidated = entry.revalidate();
+            diagnostics.phase("cacheCheck", phaseStart);
+            if (revalidated != null) {
+                if (revalidated != entry && entries.replace(key, entry, revalidated)) {
+                    modified = true;
+                }
+                diagnostics.setCached(true);
+                return revalidated.buildInfo;
+            }
+            entries.remove(key, entry);
+            modified = true;
+        }
+
+        // Allow for file systems that only store modification times to the second
+        long parseStarted = System.currentTimeMillis() - 1000;
+        AntBuildInfo buildInfo = AntParser.parseBuildFile(buildFile, outline, diagnostics);
+        phaseStart = System.nanoTime();
+        Entry parsed = Entry.of(buildInfo);
+        diagnostics.phase("fingerprint", phaseStart);
+        // A file modified while it was being parsed may not match what we read; don't cache that result
+        if (!parsed.modifiedSince(parseStarted)) {
+            entries.put(key, parsed);
+            modified = true;
+        }
+        return buildInfo;
+    }
+
+    /**
+     * Drop the cached result for a build file, or everything if buildFile is null.
+     */
+    public void invalidate(File buildFile) {
+        modified = true;
+        if (buildFile == null) {
+            entries.clear();
+            return;
+        }
+        entries.remove(key(buildFile, false));
+        entries.remove(key(buildFile, true));
+    }
+
+    /**
+     * Restore results from a snapshot. Entries whose source files changed since
+     * the snapshot was written are dropped and will be parsed again on demand.
+     * @return the number of entries restored
+     */
+    public int load(Path snapshot) throws IOException {
+        int restored = 0;
+        for (Map.Entry<String, Entry> stored : ParseCacheStore.load(snapshot).entrySet()) {
+            Entry entry = stored.getValue().revalidate();
+            if (entry != null) {
+                entries.putIfAbsent(stored.getKey(), entry);
+                restored++;
+            } else {
+                modified = true;
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * Write the cache to a snapshot if it changed since it was loaded or last saved.
+     */
+    public synchronized void save(Path snapshot) throws IOException {
+        if (!modified) {
+            return;
+        }
+        modified = false;
+        try {
+            ParseCacheStore.save(snapshot, new TreeMap<>(entries));
+        } catch (IOException e) {
+            modified = true;
+            throw e;
+        }
+    }
+
+    private static String key(File buildFile, boolean outline) {
+        return (outline ? "outline:" : "full:") + buildFile.getAbsolutePath();
+    }
+
+    /**
+     * A parse result with the fingerprints of the files it was built from.
+     */
+    static class Entry {
+        final AntBuildInfo buildInfo;
+        final List<FileFingerprint> fingerprints;
+
+        Entry(AntBuildInfo buildInfo, List<FileFingerprint> fingerprints) {
+            this.buildInfo = buildInfo;
+            this.fingerprints = fingerprints;
+        }
+
+        static Entry of(AntBuildInfo buildInfo) throws IOException {
+            List<FileFingerprint> fingerprints = new ArrayList<>();
+            for (String path : buildInfo.getSourceFiles()) {
+                fingerprints.add(FileFingerprint.of(new File(path)));
+            }
+            return new Entry(buildInfo, fingerprints);
+        }
+
+        /**
+         * @return this entry if unchanged, a copy with refreshed fingerprints if only
+         *         modification times moved, or null if any source file changed
+         */
+        Entry revalidate() throws IOException {
+            List<FileFingerprint> refreshed = null;
+            for (int i = 0; i < fingerprints.size(); i++) {
+                FileFingerprint fingerprint = fingerprints.get(i);
+                FileFingerprint current = fingerprint.revalidate();
+                if (current == null) {
+                    return null;
+                }
+                if (current != fingerprint && refreshed == null) {
+                    refreshed = new ArrayList<>(fingerprints);
+                }
+                if (refreshed != null) {
+                    refreshed.set(i, current);
+                }
+            }
+            return refreshed == null ? this : new Entry(buildInfo, refreshed);
+        }
+
+        boolean modifiedSince(long time) {
+            for (FileFingerprint fingerprint : fingerprints) {
+                if (fingerprint.getLastModified() >= time) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.vscode.ant;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary snapshot of a {@link ParseCache}, so parse results survive restarts.
+ *
+ * <pre>
+ * int    magic "ANTC"
+ * int    format version
+ * int    entry count
+ * entry: string key, int fingerprint count,
+ *        fingerprint: string path, long size, long lastModified, int hash length, byte[] hash
+ *        build info:  string projectName, defaultTarget, baseDir, description, buildFile,
+ *                     string list sourceFiles, int target count,
+ *        target:      string name, description, ifCondition, unlessCondition,
+ *                     byte isDefault, string list dependencies
+ *        int dependency problem count (-1 for null),
+ *        problem:     string kind, message, missingTarget, string list targets
+ *        int property count (-1 for null), property: string name, value
+ * string: int byte length (-1 for null) followed by UTF-8 bytes
+ * list:   int count (-1 for null) followed by the strings
+ * </pre>
+ *
+ * Snapshots are read into a buffer with a single read and written to a temporary
+ * file that replaces the previous snapshot atomically.
+ */
+final class ParseCacheStore {
+
+    private static final int MAGIC = 0x414E5443; // "ANTC"
+    private static final int VERSION = 3;
+
+    private ParseCacheStore() {
+    }
+
+    /**
+     * Read a snapshot. Returns an empty map if the file does not exist or was
+     * written by a different format version.
+     */
+    static Map<String, ParseCache.Entry> load(Path file) throws IOException {
+        Map<String, ParseCache.Entry> entries = new LinkedHashMap<>();
+        if (!Files.isRegularFile(file)) {
+            return entries;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = read(channel);
+            if (buffer.remaining() < 12 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return entries;
+            }
+            int count = readCount(buffer);
+            for (int i = 0; i < count; i++) {
+                String key = readRequiredString(buffer);
+                int fingerprintCount = readCount(buffer);
+                List<FileFingerprint> fingerprints = new ArrayList<>(fingerprintCount);
+                for (int j = 0; j < fingerprintCount; j++) {
+                    String path = readRequiredString(buffer);
+                    long size = buffer.getLong();
+                    long lastModified = buffer.getLong();
+                    byte[] hash = new byte[readCount(buffer)];
+                    buffer.get(hash);
+                    fingerprints.add(new FileFingerprint(path, size, lastModified, hash));
+                }
+                entries.put(key, new ParseCache.Entry(readBuildInfo(buffer), fingerprints));
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+            // Truncated or corrupt snapshot: start over
+            entries.clear();
+        }
+        return entries;
+    }
+
+    /**
+     * Write a snapshot, replacing any previous one.
+     */
+    static void save(Path file, Map<String, ParseCache.Entry> entries) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, ParseCache.Entry> entry : entries.entrySet()) {
+                    writeString(out, entry.getKey());
+                    List<FileFingerprint> fingerprints = entry.getValue().fingerprints;
+                    out.writeInt(fingerprints.size());
+                    for (FileFingerprint fingerprint : fingerprints) {
+                        writeString(out, fingerprint.getPath());
+                        out.writeLong(fingerprint.getSize());
+                        out.writeLong(fingerprint.getLastModified());
+                        out.writeInt(fingerprint.getHash().length);
+                        out.write(fingerprint.getHash());
+                    }
+                    writeBuildInfo(out, entry.getValue().buildInfo);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static AntBuildInfo readBuildInfo(ByteBuffer buffer) {
+        AntBuildInfo buildInfo = new AntBuildInfo();
+        buildInfo.setProjectName(readString(buffer));
+        buildInfo.setDefaultTarget(readString(buffer));
+        buildInfo.setBaseDir(readString(buffer));
+        buildInfo.setDescription(readString(buffer));
+        buildInfo.setBuildFile(readString(buffer));
+        buildInfo.setSourceFiles(readStrings(buffer));
+
+        int count = readCount(buffer);
+        List<AntTarget> targets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            AntTarget target = new AntTarget();
+            target.setName(readString(buffer));
+            target.setDescription(readString(buffer));
+            target.setIfCondition(readString(buffer));
+            target.setUnlessCondition(readString(buffer));
+            target.setDefault(buffer.get() != 0);
+            target.setDependencies(readStrings(buffer));
+            targets.add(target);
+        }
+        buildInfo.setTargets(targets);
+
+        int problemCount = buffer.getInt();
+        if (problemCount >= 0) {
+            checkCount(buffer, problemCount);
+            List<DependencyProblem> problems = new ArrayList<>(problemCount);
+            for (int i = 0; i < problemCount; i++) {
+                DependencyProblem problem = new DependencyProblem();
+                problem.setKind(readString(buffer));
+                problem.setMessage(readString(buffer));
+                problem.setMissingTarget(readString(buffer));
+                problem.setTargets(readStrings(buffer));
+                problems.add(problem);
+            }
+            buildInfo.setDependencyProblems(problems);
+        }
+
+        int propertyCount = buffer.getInt();
+        if (propertyCount >= 0) {
+            checkCount(buffer, propertyCount);
+            Map<String, String> properties = new HashMap<>();
+            for (int i = 0; i < propertyCount; i++) {
+                properties.put(readRequiredString(buffer), readString(buffer));
+            }
+            buildInfo.setProperties(properties);
+        }
+        return buildInfo;
+    }
+
+    private static void writeBuildInfo(DataOutputStream out, AntBuildInfo buildInfo) throws IOException {
+        writeString(out, buildInfo.getProjectName());
+        writeString(out, buildInfo.getDefaultTarget());
+        writeString(out, buildInfo.getBaseDir());
+        writeString(out, buildInfo.getDescription());
+        writeString(out, buildInfo.getBuildFile());
+        writeStrings(out, buildInfo.getSourceFiles());
+
+        out.writeInt(buildInfo.getTargets().size());
+        for (AntTarget target : buildInfo.getTargets()) {
+            writeString(out, target.getName());
+            writeString(out, target.getDescription());
+            writeString(out, target.getIfCondition());
+            writeString(out, target.getUnlessCondition());
+            out.writeByte(target.isDefault() ? 1 : 0);
+            writeStrings(out, target.getDependencies());
+        }
+
+        List<DependencyProblem> problems = buildInfo.getDependencyProblems();
+        out.writeInt(problems != null ? problems.size() : -1);
+        if (problems != null) {
+            for (DependencyProblem problem : problems) {
+                writeString(out, problem.getKind());
+                writeString(out, problem.getMessage());
+                writeString(out, problem.getMissingTarget());
+                writeStrings(out, problem.getTargets());
+            }
+        }
+
+        Map<String, String> properties = buildInfo.getProperties();
+        out.writeInt(properties != null ? properties.size() : -1);
+        if (properties != null) {
+            for (Map.Entry<String, String> property : properties.entrySet()) {
+                writeString(out, property.getKey());
+                writeString(out, property.getValue());
+            }
+        }
+    }
+
+    /**
+     * Read the whole snapshot onto the heap. Not mapped: a mapping outlives the channel
+     * until it is garbage collected, and on Windows a mapped file can't be replaced by
+     * {@link #save}.
+     */
+    private static ByteBuffer read(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Corrupt parse cache snapshot");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // Read until the end of the file
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int readCount(ByteBuffer buffer) {
+        return checkCount(buffer, buffer.getInt());
+    }
+
+    /**
+     * Every counted item takes at least one byte, so a larger count or length means the
+     * snapshot is corrupt; checked before anything is allocated for it.
+     */
+    private static int checkCount(ByteBuffer buffer, int count) {
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IllegalArgumentException("Corrupt parse cache snapshot");
+        }
+        return count;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        checkCount(buffer, length);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read a string that is never written as null, such as a cache key or a fingerprint path.
+     */
+    private static String readRequiredString(ByteBuffer buffer) {
+        String value = readString(buffer);
+        if (value == null) {
+            throw new IllegalArgumentException("Corrupt parse cache snapshot");
+        }
+        return value;
+    }
+
+    private static List<String> readStrings(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0) {
+            return null;
+        }
+        checkCount(buffer, count);
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(buffer));
+        }
+        return values;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+}
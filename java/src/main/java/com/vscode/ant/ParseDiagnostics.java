@@ -0,0 +1,125 @@
+package com.vscode.ant;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Opt-in timing of one parse: nanoseconds per phase and per imported/included
+ * file (inclusive of the files it imports in turn), plus the classes loaded and
+ * the bytes allocated by the parsing thread while it ran.
+ *
+ * <p>Use {@link #NONE} when diagnostics are off; it ignores every call. An
+ * instance is meant for one parse on one thread.</p>
+ */
+public class ParseDiagnostics {
+
+    /** Diagnostics that record nothing. */
+    public static final ParseDiagnostics NONE = new ParseDiagnostics(false);
+
+    private final boolean enabled;
+    private final long startNanos;
+    private final long startClasses;
+    private final long startAllocated;
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private final JsonArray imports = new JsonArray();
+    private boolean cached;
+    private long totalNanos = -1;
+    private long classesLoaded;
+    private long allocatedBytes;
+
+    public ParseDiagnostics() {
+        this(true);
+    }
+
+    private ParseDiagnostics(boolean enabled) {
+        this.enabled = enabled;
+        this.startNanos = System.nanoTime();
+        this.startClasses = enabled ? loadedClasses() : 0;
+        this.startAllocated = enabled ? allocatedBytes() : 0;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Add the time since {@code startNanos} (a {@link System#nanoTime()} value) to a phase.
+     */
+    public void phase(String name, long startNanos) {
+        if (enabled) {
+            phases.merge(name, System.nanoTime() - startNanos, Long::sum);
+        }
+    }
+
+    /**
+     * Record the time spent reading an imported or included file.
+     */
+    public void importFile(String file, long nanos) {
+        if (enabled) {
+            JsonObject entry = new JsonObject();
+            entry.addProperty("file", file);
+            entry.addProperty("nanos", nanos);
+            imports.add(entry);
+        }
+    }
+
+    /**
+     * Mark the result as served from the parse cache.
+     */
+    public void setCached(boolean cached) {
+        this.cached = cached;
+    }
+
+    /**
+     * Stop the clock; later phases (such as serialization) still get recorded.
+     */
+    public void finish() {
+        if (enabled && totalNanos < 0) {
+            totalNanos = System.nanoTime() - startNanos;
+            classesLoaded = loadedClasses() - startClasses;
+            long allocated = allocatedBytes();
+            allocatedBytes = allocated < 0 || startAllocated < 0 ? -1 : allocated - startAllocated;
+        }
+    }
+
+    public JsonObject toJson() {
+        finish();
+        JsonObject json = new JsonObject();
+        json.addProperty("totalNanos", totalNanos);
+        json.addProperty("cached", cached);
+        JsonObject phaseTimes = new JsonObject();
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            phaseTimes.addProperty(phase.getKey(), phase.getValue());
+        }
+        json.add("phases", phaseTimes);
+        json.add("imports", imports);
+        json.addProperty("classesLoaded", classesLoaded);
+        json.addProperty("allocatedBytes", allocatedBytes);
+        return json;
+    }
+
+    private static long loadedClasses() {
+        ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+        return classLoading.getTotalLoadedClassCount();
+    }
+
+    /**
+     * Bytes allocated by the current thread so far, or -1 if the JVM cannot tell.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+            if (sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled()) {
+                return sunThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,25 @@
+package com.vscode.ant;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event around a full or outline parse of a build file.
+ */
+@Name("com.vscode.ant.Parse")
+@Label("Build File Parse")
+@Category("Ant Parser")
+@Description("Parses an Ant build file with the full or outline parser")
+class ParseEvent extends Event {
+    @Label("Build File")
+    String buildFile;
+
+    @Label("Outline")
+    boolean outline;
+
+    @Label("Target Count")
+    int targetCount;
+}
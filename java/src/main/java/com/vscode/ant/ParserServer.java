@@ -0,0 +1,587 @@
+package com.vscode.ant;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.vscode.ant.graph.DependencyGraph;
+import com.vscode.ant.graph.ExecutionPlan;
+import com.vscode.ant.run.BuildRunner;
+import com.vscode.ant.run.BuildEventStream;
+import com.vscode.ant.run.BuildTrace;
+import com.vscode.ant.run.DurationHistory;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Long-running parser mode that keeps the JVM and the Ant classes warm.
+ * Reads one JSON request per line from the input stream and writes one
+ * JSON response per line to the output stream.
+ *
+ * <pre>
+ * {"id": 1, "command": "parse", "buildFile": "/path/to/build.xml", "outline": false}
+ * {"id": 1, "result": { ...AntBuildInfo... }}
+ * {"id": 2, "error": "Build file not found: /missing.xml"}
+ * </pre>
+ *
+ * <p>A parse request with {@code "diagnostics": true} also gets a {@code diagnostics}
+ * object with phase and import timings (see {@link ParseDiagnostics}).</p>
+ *
+ * <p>Parse results are kept in a {@link ParseCache} and served again until one
+ * of the files they were built from changes; {@code invalidate} drops them.
+ * When a snapshot file is given, the cache is restored from it on startup and
+ * written back when the server stops.</p>
+ *
+ * <p>{@code watch} parses like {@code parse} and keeps watching the build file
+ * and everything it was built from; whenever the result changes, an event without
+ * an id is pushed until {@code unwatch} is sent for that file:</p>
+ *
+ * <pre>
+ * {"event": "changed", "buildFile": "/path/to/build.xml", "result": { ...AntBuildInfo... }}
+ * {"event": "changed", "buildFile": "/path/to/build.xml", "error": "..."}
+ * </pre>
+ *
+ * <p>{@code executionOrder} and {@code dependencies} take a {@code buildFile} and a
+ * {@code target} and answer from the {@link DependencyGraph} of the cached parse:
+ * the targets {@code ant <target>} would run in order, and all targets it depends
+ * on transitively. {@code dependents} answers the other way round, with all targets
+ * that run {@code target}; {@code impact} lists what removing {@code target} breaks:</p>
+ *
+ * <pre>
+ * {"id": 3, "result": {"dependents": ["dist"], "affected": ["all", "dist", "release"]}}
+ * </pre>
+ *
+ * <p>{@code plan} takes {@code targets} and user {@code properties} and returns the targets
+ * {@code ant} would run for them, in order, without running anything (see {@link ExecutionPlan}):</p>
+ *
+ * <pre>
+ * {"id": 4, "command": "plan", "buildFile": "/path/to/build.xml", "targets": ["dist"], "properties": {"skip.tests": "true"}}
+ * {"id": 4, "result": [{"name": "compile"}, {"name": "test", "skipped": "Skipped because property 'skip.tests' set."}, {"name": "dist"}]}
+ * </pre>
+ *
+ * <p>{@code index} finds and parses the build files below {@code roots} in the
+ * background (see {@link WorkspaceIndexer}), optionally with its own {@code excludes}.
+ * Other requests are served meanwhile. Each build file is pushed as an event carrying
+ * the request id as {@code request}, and the response with the counts comes last:</p>
+ *
+ * <pre>
+ * {"event": "indexed", "request": 5, "buildFile": "/ws/a/build.xml", "result": { ...AntBuildInfo... }}
+ * {"id": 5, "result": {"directories": 41230, "xmlFiles": 812, "buildFiles": 97, "millis": 2140}}
+ * </pre>
+ *
+ * <p>{@code run} runs {@code targets} of {@code buildFile} with user {@code properties} in
+ * this JVM (see {@link BuildRunner}), one build at a time, while other requests are served.
+ * Build events are pushed in batches as they happen (see {@link BuildEventStream}), with
+ * messages down to {@code level} ({@code error}, {@code warning}, {@code info} by default,
+ * {@code verbose} or {@code debug}); the response comes after the last batch, with Ant's
+ * message as the error if the build failed. {@code "keepGoing": true} is {@code ant -k}.
+ * With {@code trace}, every target and task is also timed (see {@link BuildTrace}): the
+ * trace is written to that file for chrome://tracing or ui.perfetto.dev, and the result has
+ * the {@code criticalPath} through the targets' {@code depends}.
+ * {@code cancel} with the run's id as
+ * {@code request} stops it:</p>
+ *
+ * <pre>
+ * {"id": 6, "command": "run", "buildFile": "/path/to/build.xml", "targets": ["compile"], "properties": {}}
+ * {"event": "build", "request": 6, "events": [{"type": "targetStarted", "time": 3, "target": "compile"},
+ *     {"type": "message", "time": 41, "priority": 2, "task": "javac", "message": "Compiling 3 source files"}]}
+ * {"id": 6, "result": {"millis": 840}}
+ * </pre>
+ *
+ * <p>When a history file is given, the duration of every target of every run is added to
+ * it (see {@link DurationHistory}). {@code predict} takes what {@code plan} takes and adds
+ * each target's median and 95th percentile from earlier runs, when there are any, the
+ * time it is expected to be done ({@code eta}), {@code regressed} when its latest run was
+ * slow, and the estimate for the whole plan. {@code history} returns the statistics of
+ * all targets of {@code buildFile} that ran before, with {@code regressed} set when the
+ * latest run took longer than the 95th percentile of the runs before it:</p>
+ *
+ * <pre>
+ * {"id": 7, "command": "predict", "buildFile": "/path/to/build.xml", "targets": ["dist"], "properties": {}}
+ * {"id": 7, "result": {"steps": [{"name": "compile", "p50": 4100, "p95": 5200, "eta": 4100}, {"name": "dist"}],
+ *     "millis": 4100, "p95Millis": 5200, "unknown": ["dist"]}}
+ * {"id": 8, "command": "history", "buildFile": "/path/to/build.xml"}
+ * {"id": 8, "result": [{"name": "compile", "runs": 12, "p50": 4100, "p95": 5200, "last": 6900, "regressed": true}]}
+ * </pre>
+ */
+public class ParserServer {
+
+    private final BufferedReader in;
+    private final PrintStream out;
+    private final Gson gson = AntBuildInfoAdapter.createGson();
+    private final ParseCache cache = new ParseCache();
+    private final Path snapshot;
+    private final DurationHistory history;
+    private BuildFileWatcher watcher;
+    private final Map<JsonElement, BuildRunner> runs = new ConcurrentHashMap<>();
+    // Builds run one after another, in the order they were requested
+    private final ExecutorService runExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ant-run");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ParserServer(InputStream in, PrintStream out) {
+        this(in, out, null);
+    }
+
+    /**
+     * @param snapshot file to restore the parse cache from and save it to, or null
+     */
+    public ParserServer(InputStream in, PrintStream out, Path snapshot) {
+        this(in, out, snapshot, null);
+    }
+
+    /**
+     * @param snapshot file to restore the parse cache from and save it to, or null
+     * @param history file to keep the target durations of runs in, or null
+     */
+    public ParserServer(InputStream in, PrintStream out, Path snapshot, Path history) {
+        this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.out = out;
+        this.snapshot = snapshot;
+        this.history = history != null ? new DurationHistory(history) : null;
+    }
+
+    /**
+     * Serve requests until the input is closed or a shutdown request is received.
+     */
+    public void run() throws IOException {
+        if (snapshot != null) {
+            try {
+                cache.load(snapshot);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Ignoring unreadable parse cache " + snapshot + ": " + e.getMessage());
+            }
+            // Also save when the client kills the process instead of closing stdin
+            Runtime.getRuntime().addShutdownHook(new Thread(this::saveSnapshot));
+        }
+
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                if (!handle(line)) {
+                    break;
+                }
+            }
+        } finally {
+            if (watcher != null) {
+                watcher.close();
+            }
+            saveSnapshot();
+        }
+    }
+
+    private void saveSnapshot() {
+        if (snapshot == null) {
+            return;
+        }
+        try {
+            cache.save(snapshot);
+        } catch (IOException e) {
+            System.err.println("Failed to save parse cache " + snapshot + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handle a single request line.
+     * @return false when the server should stop
+     */
+    private boolean handle(String line) {
+        JsonElement id = null;
+        try {
+            JsonObject request = JsonParser.parseString(line).getAsJsonObject();
+            id = request.get("id");
+            String command = request.has("command") ? request.get("command").getAsString() : "parse";
+
+            switch (command) {
+                case "parse":
+                    if (request.has("diagnostics") && request.get("diagnostics").getAsBoolean()) {
+                        ParseDiagnostics diagnostics = new ParseDiagnostics();
+                        AntBuildInfo buildInfo = cache.get(buildFile(request), outline(request), diagnostics);
+                        long phaseStart = System.nanoTime();
+                        JsonElement result = gson.toJsonTree(buildInfo);
+                        diagnostics.phase("serialize", phaseStart);
+                        JsonObject response = new JsonObject();
+                        response.add("id", id);
+                        response.add("result", result);
+                        response.add("diagnostics", diagnostics.toJson());
+                        write(response);
+                    } else {
+                        respond(id, gson.toJsonTree(parse(request)));
+                    }
+                    return true;
+                case "watch":
+                    respond(id, gson.toJsonTree(getWatcher().watch(buildFile(request), outline(request))));
+                    return true;
+                case "unwatch":
+                    if (watcher != null && request.has("buildFile")) {
+                        watcher.unwatch(new File(request.get("buildFile").getAsString()));
+                    }
+                    respond(id, gson.toJsonTree(true));
+                    return true;
+                case "executionOrder":
+                    respond(id, gson.toJsonTree(DependencyGraph.of(parse(request)).executionOrder(target(request))));
+                    return true;
+                case "dependencies":
+                    respond(id, gson.toJsonTree(DependencyGraph.of(parse(request)).closureNames(target(request))));
+                    return true;
+                case "dependents":
+                    respond(id, gson.toJsonTree(DependencyGraph.of(parse(request)).dependentClosureNames(target(request))));
+                    return true;
+                case "impact": {
+                    DependencyGraph graph = DependencyGraph.of(parse(request));
+                    String target = target(request);
+                    JsonObject impact = new JsonObject();
+                    impact.add("dependents", gson.toJsonTree(graph.dependentNames(target)));
+                    impact.add("affected", gson.toJsonTree(graph.dependentClosureNames(target)));
+                    respond(id, impact);
+                    return true;
+                }
+                case "index":
+                    index(id, request);
+                    return true;
+                case "plan":
+                    respond(id, plan(request));
+                    return true;
+                case "predict":
+                    respond(id, predict(request));
+                    return true;
+                case "history":
+                    respond(id, history(request));
+                    return true;
+                case "run":
+                    run(id, request);
+                    return true;
+                case "cancel": {
+                    BuildRunner run = request.has("request") ? runs.get(request.get("request")) : null;
+                    if (run != null) {
+                        run.cancel();
+                    }
+                    respond(id, gson.toJsonTree(run != null));
+                    return true;
+                }
+                case "invalidate":
+                    cache.invalidate(request.has("buildFile") ? new File(request.get("buildFile").getAsString()) : null);
+                    respond(id, gson.toJsonTree(true));
+                    return true;
+                case "ping":
+                    respond(id, gson.toJsonTree("pong"));
+                    return true;
+                case "shutdown":
+                    respond(id, gson.toJsonTree("bye"));
+                    return false;
+                default:
+                    fail(id, "Unknown command: " + command);
+                    return true;
+            }
+        } catch (Exception | LinkageError | StackOverflowError e) {
+            // Fails this request only, e.g. a build file that includes itself
+            fail(id, e.getMessage() != null ? e.getMessage() : e.toString());
+            return true;
+        }
+    }
+
+    private AntBuildInfo parse(JsonObject request) throws IOException {
+        return cache.get(buildFile(request), outline(request));
+    }
+
+    private void index(JsonElement id, JsonObject request) {
+        if (!request.has("roots")) {
+            throw new IllegalArgumentException("Missing 'roots'");
+        }
+        List<Path> roots = new ArrayList<>();
+        for (JsonElement root : request.getAsJsonArray("roots")) {
+            roots.add(new File(root.getAsString()).toPath());
+        }
+        List<String> excludes = new ArrayList<>(WorkspaceIndexer.DEFAULT_EXCLUDES);
+        if (request.has("excludes")) {
+            excludes.clear();
+            for (JsonElement exclude : request.getAsJsonArray("excludes")) {
+                excludes.add(exclude.getAsString());
+            }
+        }
+        WorkspaceIndexer indexer = new WorkspaceIndexer(excludes,
+                Math.min(Runtime.getRuntime().availableProcessors(), 8), outline(request), cache);
+
+        Thread thread = new Thread(() -> {
+            try {
+                WorkspaceIndexer.Summary summary = indexer.index(roots, (buildFile, buildInfo, error) -> {
+                    JsonObject event = new JsonObject();
+                    event.addProperty("event", "indexed");
+                    event.add("request", id);
+                    event.addProperty("buildFile", buildFile.getPath());
+                    if (error != null) {
+                        event.addProperty("error", error.getMessage() != null ? error.getMessage() : error.toString());
+                    } else {
+                        event.add("result", gson.toJsonTree(buildInfo));
+                    }
+                    write(event);
+                });
+                respond(id, summary.toJson());
+            } catch (Exception | LinkageError | StackOverflowError e) {
+                fail(id, e.getMessage() != null ? e.getMessage() : e.toString());
+            }
+        }, "ant-parser-index");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run(JsonElement id, JsonObject request) {
+        if (id == null || id.isJsonNull()) {
+            // Events and cancel refer to the run by its id
+            throw new IllegalArgumentException("Missing 'id'");
+        }
+        File buildFile = buildFile(request);
+        BuildRunner runner = new BuildRunner(buildFile, targets(request), properties(request));
+        runner.setKeepGoing(request.has("keepGoing") && request.get("keepGoing").getAsBoolean());
+        int level = request.has("level")
+                ? BuildEventStream.parseLevel(request.get("level").getAsString()) : Project.MSG_INFO;
+        Path traceFile = request.has("trace") ? Paths.get(request.get("trace").getAsString()) : null;
+        // The history needs the target durations of every run
+        BuildTrace trace = traceFile != null || history != null ? new BuildTrace() : null;
+
+        runs.put(id, runner);
+        runExecutor.execute(() -> {
+            long start = System.nanoTime();
+            try {
+                try (BuildEventStream events = new BuildEventStream(batch -> {
+                    JsonObject event = new JsonObject();
+                    event.addProperty("event", "build");
+                    event.add("request", id);
+                    event.add("events", batch);
+                    write(event);
+                }, level, BuildEventStream.DEFAULT_BATCH_SIZE, BuildEventStream.DEFAULT_FLUSH_MILLIS)) {
+                    if (trace != null) {
+                        runner.run(events, trace);
+                    } else {
+                        runner.run(events);
+                    }
+                } finally {
+                    if (traceFile != null) {
+                        writeTrace(trace, traceFile);
+                    }
+                    if (history != null) {
+                        recordHistory(buildFile, trace);
+                    }
+                }
+                JsonObject result = new JsonObject();
+                result.addProperty("millis", (System.nanoTime() - start) / 1_000_000);
+                if (traceFile != null) {
+                    result.add("criticalPath", trace.criticalPath().toJson());
+                }
+                respond(id, result);
+            } catch (InterruptedException e) {
+                fail(id, "Build cancelled");
+            } catch (BuildException e) {
+                // With the location, like "BUILD FAILED" does
+                fail(id, e.toString());
+            } catch (Exception | Error e) {
+                fail(id, e.getMessage() != null ? e.getMessage() : e.toString());
+            } finally {
+                runs.remove(id);
+            }
+        });
+    }
+
+    /**
+     * Write a run's trace, also when the build failed; a trace that can't be written
+     * doesn't fail the build.
+     */
+    private static void writeTrace(BuildTrace trace, Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                trace.writeChromeTrace(writer);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to write build trace " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void recordHistory(File buildFile, BuildTrace trace) {
+        try {
+            history.record(buildFile.getAbsolutePath(), trace);
+        } catch (IOException e) {
+            System.err.println("Failed to record target durations: " + e.getMessage());
+        }
+    }
+
+    private JsonElement plan(JsonObject request) throws IOException {
+        JsonArray result = new JsonArray();
+        for (ExecutionPlan.Step step : ExecutionPlan.of(parse(request), targets(request), properties(request))) {
+            JsonObject json = new JsonObject();
+            json.addProperty("name", step.getTarget());
+            if (step.getSkipReason() != null) {
+                json.addProperty("skipped", step.getSkipReason());
+            }
+            result.add(json);
+        }
+        return result;
+    }
+
+    private JsonElement predict(JsonObject request) throws IOException {
+        JsonArray steps = plan(request).getAsJsonArray();
+        // Skipped targets run no tasks, so they take no time
+        List<String> running = new ArrayList<>();
+        for (JsonElement step : steps) {
+            if (!step.getAsJsonObject().has("skipped")) {
+                running.add(step.getAsJsonObject().get("name").getAsString());
+            }
+        }
+        DurationHistory.Prediction prediction = history != null
+                ? history.predict(buildFile(request).getAbsolutePath(), running) : null;
+
+        // When each target is expected to be done, from the medians of the targets up to it
+        long eta = 0;
+        for (JsonElement step : steps) {
+            JsonObject json = step.getAsJsonObject();
+            DurationHistory.Stats stats = prediction != null && !json.has("skipped")
+                    ? prediction.getStats().get(json.get("name").getAsString()) : null;
+            if (stats != null) {
+                eta += stats.getP50();
+                json.addProperty("p50", stats.getP50());
+                json.addProperty("p95", stats.getP95());
+                json.addProperty("eta", eta);
+                if (stats.isRegressed()) {
+                    json.addProperty("regressed", true);
+                }
+            }
+        }
+        JsonObject result = new JsonObject();
+        result.add("steps", steps);
+        result.addProperty("millis", prediction != null ? prediction.getMillis() : 0);
+        result.addProperty("p95Millis", prediction != null ? prediction.getP95Millis() : 0);
+        result.add("unknown", gson.toJsonTree(prediction != null ? prediction.getUnknown() : running));
+        return result;
+    }
+
+    private JsonElement history(JsonObject request) throws IOException {
+        JsonArray result = new JsonArray();
+        if (history == null) {
+            return result;
+        }
+        List<String> names = new ArrayList<>();
+        for (AntTarget target : parse(request).getTargets()) {
+            names.add(target.getName());
+        }
+        for (Map.Entry<String, DurationHistory.Stats> entry
+                : history.stats(buildFile(request).getAbsolutePath(), names).entrySet()) {
+            DurationHistory.Stats stats = entry.getValue();
+            JsonObject json = new JsonObject();
+            json.addProperty("name", entry.getKey());
+            json.addProperty("runs", stats.getRuns());
+            json.addProperty("p50", stats.getP50());
+            json.addProperty("p95", stats.getP95());
+            json.addProperty("last", stats.getLast());
+            json.addProperty("regressed", stats.isRegressed());
+            result.add(json);
+        }
+        return result;
+    }
+
+    private File buildFile(JsonObject request) {
+        if (!request.has("buildFile")) {
+            throw new IllegalArgumentException("Missing 'buildFile'");
+        }
+        File buildFile = new File(request.get("buildFile").getAsString());
+        if (!buildFile.exists()) {
+            throw new IllegalArgumentException("Build file not found: " + buildFile.getPath());
+        }
+        return buildFile;
+    }
+
+    private static List<String> targets(JsonObject request) {
+        List<String> targets = new ArrayList<>();
+        if (request.has("targets")) {
+            for (JsonElement target : request.getAsJsonArray("targets")) {
+                targets.add(target.getAsString());
+            }
+        }
+        return targets;
+    }
+
+    private static Map<String, String> properties(JsonObject request) {
+        Map<String, String> properties = new HashMap<>();
+        if (request.has("properties")) {
+            for (Map.Entry<String, JsonElement> property : request.getAsJsonObject("properties").entrySet()) {
+                properties.put(property.getKey(), property.getValue().getAsString());
+            }
+        }
+        return properties;
+    }
+
+    private static String target(JsonObject request) {
+        if (!request.has("target")) {
+            throw new IllegalArgumentException("Missing 'target'");
+        }
+        return request.get("target").getAsString();
+    }
+
+    private static boolean outline(JsonObject request) {
+        return request.has("outline") && request.get("outline").getAsBoolean();
+    }
+
+    private BuildFileWatcher getWatcher() throws IOException {
+        if (watcher == null) {
+            watcher = new BuildFileWatcher(cache, this::changed);
+        }
+        return watcher;
+    }
+
+    private void changed(File buildFile, AntBuildInfo buildInfo, Throwable error) {
+        JsonObject event = new JsonObject();
+        event.addProperty("event", "changed");
+        event.addProperty("buildFile", buildFile.getPath());
+        if (error != null) {
+            event.addProperty("error", error.getMessage() != null ? error.getMessage() : error.toString());
+        } else {
+            event.add("result", gson.toJsonTree(buildInfo));
+        }
+        write(event);
+    }
+
+    private void respond(JsonElement id, JsonElement result) {
+        JsonObject response = new JsonObject();
+        response.add("id", id);
+        response.add("result", result);
+        write(response);
+    }
+
+    private void fail(JsonElement id, String message) {
+        JsonObject response = new JsonObject();
+        response.add("id", id);
+        response.addProperty("error", message);
+        write(response);
+    }
+
+    private synchronized void write(JsonObject response) {
+        out.println(gson.toJson(response));
+        out.flush();
+    }
+}
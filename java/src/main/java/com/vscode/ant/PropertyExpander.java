@@ -0,0 +1,49 @@
+package com.vscode.ant;
+
+import java.util.function.Function;
+
+/**
+ * Ant's {@code ${name}} expansion, for code that evaluates build files without a
+ * {@code Project}.
+ */
+public final class PropertyExpander {
+
+    private PropertyExpander() {
+    }
+
+    /**
+     * Expand ${name} references; unknown properties are left as they are and $$ becomes $.
+     *
+     * @param lookup the value of a property, or null if it isn't set
+     */
+    public static String replaceProperties(String value, Function<String, String> lookup) {
+        if (value == null || value.indexOf('$') < 0) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        int i = 0;
+        while (i < value.length()) {
+            char c = value.charAt(i);
+            if (c != '$' || i + 1 >= value.length()) {
+                sb.append(c);
+                i++;
+            } else if (value.charAt(i + 1) == '$') {
+                sb.append('$');
+                i += 2;
+            } else if (value.charAt(i + 1) == '{') {
+                int end = value.indexOf('}', i + 2);
+                if (end < 0) {
+                    sb.append(value, i, value.length());
+                    break;
+                }
+                String resolved = lookup.apply(value.substring(i + 2, end));
+                sb.append(resolved != null ? resolved : value.substring(i, end + 1));
+                i = end + 1;
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,104 @@
+package com.vscode.ant;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.ProjectHelper;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.UnknownElement;
+import org.apache.tools.ant.types.Resource;
+import org.apache.tools.ant.types.resources.FileProvider;
+import org.apache.tools.ant.util.FileUtils;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Build listener used while parsing. It drops all Ant output, so logging stays
+ * inside the project instead of reaching stdout/stderr, and records the
+ * property files loaded by top-level {@code <property file="...">} tasks.
+ *
+ * <p>It also stops an {@code <include>} of a file that is still being parsed further up,
+ * like a build file including itself. Ant skips such files for {@code <import>}, but an
+ * include gets a new prefix every time and recurses until the stack overflows, deep
+ * enough to leave JDK classes that were initializing at that moment unusable.</p>
+ */
+class SourceFileListener implements BuildListener {
+
+    private final Set<String> propertyFiles = new LinkedHashSet<>();
+    // Files of the imports and includes in progress, outermost first
+    private final Deque<String> parsing = new ArrayDeque<>();
+
+    /**
+     * The build file and everything it imported or included, followed by the property files.
+     */
+    List<String> getSourceFiles(ProjectHelper helper) {
+        Set<String> files = new LinkedHashSet<>();
+        for (Object source : helper.getImportStack()) {
+            File file = null;
+            if (source instanceof File) {
+                file = (File) source;
+            } else if (source instanceof Resource) {
+                FileProvider provider = ((Resource) source).as(FileProvider.class);
+                file = provider != null ? provider.getFile() : null;
+            }
+            if (file != null) {
+                files.add(file.getAbsolutePath());
+            }
+        }
+        files.addAll(propertyFiles);
+        return new ArrayList<>(files);
+    }
+
+    @Override
+    public void taskFinished(BuildEvent event) {
+        // The configured Property is discarded once it ran, so read the attribute from its wrapper
+        Task task = event.getTask();
+        if (ImportListener.isImport(task) && !parsing.isEmpty()) {
+            parsing.removeLast();
+            return;
+        }
+        if (task instanceof UnknownElement && "property".equals(((UnknownElement) task).getTaskType())) {
+            Object file = ((UnknownElement) task).getWrapper().getAttributeMap().get("file");
+            if (file != null) {
+                Project project = event.getProject();
+                propertyFiles.add(project.resolveFile(project.replaceProperties(file.toString())).getAbsolutePath());
+            }
+        }
+    }
+
+    @Override
+    public void messageLogged(BuildEvent event) {}
+    @Override
+    public void buildStarted(BuildEvent event) {}
+    @Override
+    public void buildFinished(BuildEvent event) {}
+    @Override
+    public void targetStarted(BuildEvent event) {}
+    @Override
+    public void targetFinished(BuildEvent event) {}
+    @Override
+    public void taskStarted(BuildEvent event) {
+        Task task = event.getTask();
+        if (!ImportListener.isImport(task)) {
+            return;
+        }
+        String importing = task.getLocation().getFileName();
+        if (parsing.isEmpty() && importing != null) {
+            // No import in progress: the task is in the main build file
+            parsing.add(FileUtils.getFileUtils().normalize(importing).getAbsolutePath());
+        }
+        String file = ImportListener.importedFile((UnknownElement) task, event.getProject(), importing);
+        if ("include".equals(((UnknownElement) task).getTaskType()) && parsing.contains(file)) {
+            throw new BuildException("Cannot include " + file + " from " + importing
+                    + ": it is still being parsed, so the include would never end", task.getLocation());
+        }
+        parsing.add(file);
+    }
+}
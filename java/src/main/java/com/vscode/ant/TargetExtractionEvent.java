@@ -0,0 +1,22 @@
+package com.vscode.ant;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event around turning parsed targets into the {@link AntTarget} list.
+ */
+@Name("com.vscode.ant.TargetExtraction")
+@Label("Target Extraction")
+@Category("Ant Parser")
+@Description("Builds the sorted target list of a parsed build file")
+class TargetExtractionEvent extends Event {
+    @Label("Build File")
+    String buildFile;
+
+    @Label("Target Count")
+    int targetCount;
+}
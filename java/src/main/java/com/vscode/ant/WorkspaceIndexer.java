@@ -0,0 +1,309 @@
+package com.vscode.ant;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Finds and parses the Ant build files below one or more directories.
+ *
+ * <p>Directories are listed in parallel on a fork/join pool, one task per directory;
+ * excluded names and paths (see {@link GlobMatcher}) are skipped without being listed,
+ * and symbolic links are not followed. Every remaining {@code .xml} file is sniffed by
+ * reading up to its root element: a {@code project} element without a namespace (or
+ * with an {@code antlib:} one) is a build file, which rules out Maven POMs and NetBeans
+ * project files. Build files are parsed on a bounded pool and reported to the
+ * {@link Listener} as each one completes; when parsing falls behind, the walking
+ * threads parse files themselves instead of queueing more.</p>
+ *
+ * <pre>
+ * java -jar ant-parser.jar --index [--outline] [--threads N] [--exclude GLOB]... &lt;dir&gt;...
+ * </pre>
+ */
+public class WorkspaceIndexer {
+
+    /** Excluded unless the caller passes its own list. */
+    public static final List<String> DEFAULT_EXCLUDES =
+            Collections.unmodifiableList(Arrays.asList(".git", ".svn", ".hg", "node_modules"));
+
+    private static final XMLInputFactory SNIFF_FACTORY = createSniffFactory();
+
+    /**
+     * Receives each build file as soon as it is parsed; called from several threads.
+     * A file that fails to parse, also with a linkage error or a stack overflow in a
+     * deeply nested file, only fails itself.
+     */
+    public interface Listener {
+        void indexed(File buildFile, AntBuildInfo buildInfo, Throwable error);
+    }
+
+    /**
+     * Counts of one indexing run.
+     */
+    public static class Summary {
+        private final long directories;
+        private final long xmlFiles;
+        private final long buildFiles;
+        private final long millis;
+
+        Summary(long directories, long xmlFiles, long buildFiles, long millis) {
+            this.directories = directories;
+            this.xmlFiles = xmlFiles;
+            this.buildFiles = buildFiles;
+            this.millis = millis;
+        }
+
+        public long getDirectories() {
+            return directories;
+        }
+
+        public long getXmlFiles() {
+            return xmlFiles;
+        }
+
+        public long getBuildFiles() {
+            return buildFiles;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        public JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("directories", directories);
+            json.addProperty("xmlFiles", xmlFiles);
+            json.addProperty("buildFiles", buildFiles);
+            json.addProperty("millis", millis);
+            return json;
+        }
+    }
+
+    private final GlobMatcher excludes;
+    private final int threads;
+    private final boolean outline;
+    private final ParseCache cache;
+
+    /**
+     * @param cache cache to parse through, so later requests for the same files are
+     *              answered from it; null to parse directly
+     */
+    public WorkspaceIndexer(Collection<String> excludes, int threads, boolean outline, ParseCache cache) {
+        this.excludes = new GlobMatcher(excludes);
+        this.threads = Math.max(1, threads);
+        this.outline = outline;
+        this.cache = cache;
+    }
+
+    /**
+     * Index the directories named by the arguments following {@code --index}, writing one
+     * JSON document per build file as it is parsed (like {@code --batch}) and a final
+     * {@code {"summary": {...}}} line.
+     */
+    public static void run(String[] args, PrintStream out) throws InterruptedException {
+        List<String> excludes = new ArrayList<>();
+        List<Path> roots = new ArrayList<>();
+        int threads = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+        boolean outline = false;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("--threads".equals(arg) && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if ("--exclude".equals(arg) && i + 1 < args.length) {
+                excludes.add(args[++i]);
+            } else if ("--outline".equals(arg)) {
+                outline = true;
+            } else {
+                roots.add(new File(arg).toPath());
+            }
+        }
+        if (roots.isEmpty()) {
+            throw new IllegalArgumentException("No directory to index");
+        }
+
+        Gson gson = AntBuildInfoAdapter.createGson();
+        WorkspaceIndexer indexer = new WorkspaceIndexer(excludes.isEmpty() ? DEFAULT_EXCLUDES : excludes,
+                threads, outline, null);
+        Summary summary = indexer.index(roots, (buildFile, buildInfo, error) -> {
+            JsonObject result = new JsonObject();
+            result.addProperty("buildFile", buildFile.getPath());
+            if (error != null) {
+                result.addProperty("error", "Error parsing build file: "
+                        + (error.getMessage() != null ? error.getMessage() : error.toString()));
+            } else {
+                result.add("result", gson.toJsonTree(buildInfo));
+            }
+            String line = gson.toJson(result);
+            synchronized (out) {
+                out.println(line);
+                out.flush();
+            }
+        });
+        JsonObject result = new JsonObject();
+        result.add("summary", summary.toJson());
+        out.println(gson.toJson(result));
+        out.flush();
+    }
+
+    /**
+     * Walk the roots, parse every build file found and wait until all are reported.
+     */
+    public Summary index(List<Path> roots, Listener listener) throws InterruptedException {
+        long start = System.nanoTime();
+        LongAdder directories = new LongAdder();
+        LongAdder xmlFiles = new LongAdder();
+        LongAdder buildFiles = new LongAdder();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor parsers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 4), runnable -> {
+                    Thread thread = new Thread(runnable, "ant-parser-index-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        ForkJoinPool walkers = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            for (Path root : roots) {
+                walkers.invoke(new DirectoryTask(root, "", new Walk(directories, xmlFiles, buildFiles, parsers, listener)));
+            }
+        } finally {
+            walkers.shutdown();
+            parsers.shutdown();
+        }
+        parsers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        return new Summary(directories.sum(), xmlFiles.sum(), buildFiles.sum(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Whether a file's root element is an Ant {@code project}.
+     */
+    static boolean isBuildFile(Path file) {
+        try (InputStream in = Files.newInputStream(file)) {
+            XMLStreamReader reader = SNIFF_FACTORY.createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                        String namespace = reader.getNamespaceURI();
+                        return "project".equals(reader.getLocalName())
+                                && (namespace == null || namespace.isEmpty() || namespace.startsWith("antlib:"));
+                    }
+                }
+                return false;
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | XMLStreamException e) {
+            return false;
+        }
+    }
+
+    private static XMLInputFactory createSniffFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+        // Only the root element is read; never fetch a DTD for that
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return factory;
+    }
+
+    private void parse(File buildFile, Listener listener) {
+        AntBuildInfo buildInfo;
+        try {
+            buildInfo = cache != null ? cache.get(buildFile, outline) : AntParser.parseBuildFile(buildFile, outline);
+        } catch (Exception | LinkageError | StackOverflowError e) {
+            listener.indexed(buildFile, null, e);
+            return;
+        }
+        listener.indexed(buildFile, buildInfo, null);
+    }
+
+    /**
+     * State shared by the directory tasks of one run.
+     */
+    private static final class Walk {
+        final LongAdder directories;
+        final LongAdder xmlFiles;
+        final LongAdder buildFiles;
+        final ThreadPoolExecutor parsers;
+        final Listener listener;
+
+        Walk(LongAdder directories, LongAdder xmlFiles, LongAdder buildFiles,
+             ThreadPoolExecutor parsers, Listener listener) {
+            this.directories = directories;
+            this.xmlFiles = xmlFiles;
+            this.buildFiles = buildFiles;
+            this.parsers = parsers;
+            this.listener = listener;
+        }
+    }
+
+    private final class DirectoryTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Path directory;
+        private final String relativePath;
+        private final Walk walk;
+
+        DirectoryTask(Path directory, String relativePath, Walk walk) {
+            this.directory = directory;
+            this.relativePath = relativePath;
+            this.walk = walk;
+        }
+
+        @Override
+        protected void compute() {
+            walk.directories.increment();
+            List<DirectoryTask> subdirectories = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    String name = entry.getFileName().toString();
+                    String path = relativePath.isEmpty() ? name : relativePath + '/' + name;
+                    if (excludes.matches(path, name)) {
+                        continue;
+                    }
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (IOException e) {
+                        continue;
+                    }
+                    if (attributes.isDirectory()) {
+                        subdirectories.add(new DirectoryTask(entry, path, walk));
+                    } else if (attributes.isRegularFile() && name.regionMatches(true, name.length() - 4, ".xml", 0, 4)) {
+                        walk.xmlFiles.increment();
+                        if (isBuildFile(entry)) {
+                            walk.buildFiles.increment();
+                            File buildFile = entry.toFile();
+                            walk.parsers.execute(() -> parse(buildFile, walk.listener));
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // Unreadable directory: skip it like an excluded one
+            }
+            invokeAll(subdirectories);
+        }
+    }
+}
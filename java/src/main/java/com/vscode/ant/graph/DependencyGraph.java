@@ -0,0 +1,590 @@
+package com.vscode.ant.graph;
+
+import com.vscode.ant.AntBuildInfo;
+import com.vscode.ant.AntTarget;
+import com.vscode.ant.DependencyProblem;
+import org.apache.tools.ant.BuildException;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Target dependency graph of a parsed build file, indexed by int.
+ *
+ * <p>Targets are numbered in the order of {@link AntBuildInfo#getTargets()}.
+ * Dependencies are kept in declaration order as compressed rows
+ * ({@code depOffsets}/{@code deps}); a dependency on a target that does not
+ * exist is stored as {@code -(k + 1)}, where {@code k} indexes {@link #unknownTargets()}.
+ * The reverse edges are kept the same way ({@code dependentOffsets}/{@code dependents}).</p>
+ *
+ * <p>Building a graph takes linear time: the edges, the strongly connected components
+ * (Tarjan) and the {@link #problems()} Ant would fail on. On the first reachability
+ * query, the transitive closure of every component, and of its dependents, is
+ * computed as a {@link BitSet}, so later queries in either direction are a bit lookup.
+ * Execution orders follow {@code Project.topoSort}: a depth-first walk of the
+ * {@code depends} lists in declaration order, each target after its dependencies.
+ * They are computed on first use and then kept.</p>
+ */
+public final class DependencyGraph {
+
+    private static final Map<AntBuildInfo, DependencyGraph> GRAPHS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final String projectName;
+    private final String[] names;
+    private final Map<String, Integer> indexes;
+    private final int[] depOffsets;
+    private final int[] deps;
+    private final List<String> unknownTargets;
+    private final int[] dependentOffsets;
+    private final int[] dependents;
+
+    // Strongly connected components, numbered in the order Tarjan completes them (dependencies first)
+    private final int[] component;
+    private final int componentCount;
+    // Members of component c are componentMembers[componentOffsets[c] .. componentOffsets[c + 1])
+    private final int[] componentOffsets;
+    private final int[] componentMembers;
+    private volatile BitSet[] componentClosures;
+    private volatile BitSet[] componentDependents;
+
+    private final AtomicReferenceArray<int[]> executionOrders;
+
+    private DependencyGraph(AntBuildInfo buildInfo) {
+        List<AntTarget> targets = buildInfo.getTargets() != null ? buildInfo.getTargets() : Collections.emptyList();
+        int n = targets.size();
+        projectName = buildInfo.getProjectName();
+        names = new String[n];
+        indexes = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            names[i] = targets.get(i).getName();
+            indexes.put(names[i], i);
+        }
+
+        depOffsets = new int[n + 1];
+        int edgeCount = 0;
+        for (int i = 0; i < n; i++) {
+            List<String> targetDeps = targets.get(i).getDependencies();
+            edgeCount += targetDeps != null ? targetDeps.size() : 0;
+        }
+        deps = new int[edgeCount];
+        Map<String, Integer> unknown = new LinkedHashMap<>();
+        int edge = 0;
+        for (int i = 0; i < n; i++) {
+            depOffsets[i] = edge;
+            List<String> targetDeps = targets.get(i).getDependencies();
+            if (targetDeps != null) {
+                for (String dep : targetDeps) {
+                    Integer index = indexes.get(dep);
+                    if (index == null) {
+                        index = -(unknown.computeIfAbsent(dep, d -> unknown.size()) + 1);
+                    }
+                    deps[edge++] = index;
+                }
+            }
+        }
+        depOffsets[n] = edge;
+        unknownTargets = Collections.unmodifiableList(new ArrayList<>(unknown.keySet()));
+
+        // Transpose: count incoming edges, prefix-sum, then fill in target order
+        dependentOffsets = new int[n + 1];
+        for (int dep : deps) {
+            if (dep >= 0) {
+                dependentOffsets[dep + 1]++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            dependentOffsets[i + 1] += dependentOffsets[i];
+        }
+        dependents = new int[dependentOffsets[n]];
+        int[] fill = Arrays.copyOf(dependentOffsets, n);
+        for (int i = 0; i < n; i++) {
+            for (int e = depOffsets[i]; e < depOffsets[i + 1]; e++) {
+                if (deps[e] >= 0) {
+                    dependents[fill[deps[e]]++] = i;
+                }
+            }
+        }
+
+        component = new int[n];
+        componentCount = findComponents();
+        componentOffsets = new int[componentCount + 1];
+        for (int v = 0; v < n; v++) {
+            componentOffsets[component[v] + 1]++;
+        }
+        for (int c = 0; c < componentCount; c++) {
+            componentOffsets[c + 1] += componentOffsets[c];
+        }
+        componentMembers = new int[n];
+        fill = Arrays.copyOf(componentOffsets, componentCount);
+        for (int v = 0; v < n; v++) {
+            componentMembers[fill[component[v]]++] = v;
+        }
+        executionOrders = new AtomicReferenceArray<>(n);
+    }
+
+    /**
+     * The graph of a parse result. Graphs are kept as long as their parse result is
+     * reachable, so repeated queries against a cached result do not rebuild it.
+     */
+    public static DependencyGraph of(AntBuildInfo buildInfo) {
+        synchronized (GRAPHS) {
+            return GRAPHS.computeIfAbsent(buildInfo, DependencyGraph::new);
+        }
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @return the index of a target, or -1 if there is no such target
+     */
+    public int indexOf(String target) {
+        Integer index = indexes.get(target);
+        return index != null ? index : -1;
+    }
+
+    public String name(int target) {
+        return names[target];
+    }
+
+    /**
+     * Dependencies named in {@code depends} that are not targets of the project, in order of first use.
+     */
+    public List<String> unknownTargets() {
+        return unknownTargets;
+    }
+
+    /**
+     * Direct dependencies of a target that exist, in declaration order.
+     */
+    public int[] dependencies(int target) {
+        int count = 0;
+        for (int e = depOffsets[target]; e < depOffsets[target + 1]; e++) {
+            if (deps[e] >= 0) {
+                count++;
+            }
+        }
+        int[] result = new int[count];
+        count = 0;
+        for (int e = depOffsets[target]; e < depOffsets[target + 1]; e++) {
+            if (deps[e] >= 0) {
+                result[count++] = deps[e];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Whether {@code target} depends on {@code dependency}, directly or transitively.
+     */
+    public boolean dependsOn(int target, int dependency) {
+        return closures()[component[target]].get(dependency);
+    }
+
+    /**
+     * All targets {@code target} depends on, directly or transitively; includes the
+     * target itself only if it is part of a dependency cycle.
+     */
+    public BitSet closure(int target) {
+        return (BitSet) closures()[component[target]].clone();
+    }
+
+    /**
+     * Targets that name {@code target} in their {@code depends}, in index order.
+     */
+    public int[] dependents(int target) {
+        return Arrays.copyOfRange(dependents, dependentOffsets[target], dependentOffsets[target + 1]);
+    }
+
+    /**
+     * All targets that depend on {@code target}, directly or transitively, i.e. the
+     * targets whose execution runs it; includes the target itself only if it is part
+     * of a dependency cycle.
+     */
+    public BitSet dependentClosure(int target) {
+        return (BitSet) dependentClosures()[component[target]].clone();
+    }
+
+    /**
+     * Names of the targets in {@link #dependents(int)}.
+     */
+    public List<String> dependentNames(String target) {
+        int[] direct = dependents(require(target));
+        List<String> result = new ArrayList<>(direct.length);
+        for (int index : direct) {
+            // A target may name the same dependency twice
+            if (result.isEmpty() || !result.get(result.size() - 1).equals(names[index])) {
+                result.add(names[index]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Names of the targets in {@link #dependentClosure(int)}, in index order: the targets
+     * that would fail with a missing dependency if {@code target} were removed.
+     */
+    public List<String> dependentClosureNames(String target) {
+        return names(dependentClosure(require(target)));
+    }
+
+    /**
+     * Names of the targets in {@link #closure(int)}, in index order.
+     */
+    public List<String> closureNames(String target) {
+        return names(closure(require(target)));
+    }
+
+    /**
+     * The targets {@code ant <target>} runs, in the order it runs them.
+     *
+     * @throws BuildException with Ant's message if the target does not exist, depends
+     *         on a target that does not exist, or is part of a dependency cycle
+     */
+    public List<String> executionOrder(String target) {
+        int[] order = executionOrder(require(target));
+        List<String> result = new ArrayList<>(order.length);
+        for (int index : order) {
+            result.add(names[index]);
+        }
+        return result;
+    }
+
+    /**
+     * Same as {@code Project.topoSort(target, targets, false)}, as target indexes.
+     */
+    public int[] executionOrder(int target) {
+        int[] order = executionOrders.get(target);
+        if (order == null) {
+            order = topoSort(new int[] {target});
+            executionOrders.compareAndSet(target, null, order);
+        }
+        return order.clone();
+    }
+
+    /**
+     * Same as {@code Project.topoSort(String[] roots, targets, false)}: each root with the
+     * dependencies not already scheduled by an earlier root. Like Ant, the rest of the
+     * graph is walked as well, so a cycle or missing target anywhere in the project fails
+     * every target; when there are several, the first one in target order is reported.
+     */
+    public int[] topoSort(int[] roots) {
+        // 0 = not visited, 1 = visiting, 2 = visited
+        byte[] state = new byte[names.length];
+        int[] order = new int[names.length];
+        // Explicit stack of (target, next dependency edge) so deep chains don't overflow the call stack
+        int[] stack = new int[names.length];
+        int[] nextEdge = new int[names.length];
+
+        int orderSize = 0;
+        for (int root : roots) {
+            if (state[root] == 0) {
+                orderSize = visit(root, state, order, orderSize, stack, nextEdge);
+            }
+        }
+        int rootsSize = orderSize;
+        for (int target = 0; target < names.length; target++) {
+            if (state[target] == 0) {
+                orderSize = visit(target, state, order, orderSize, stack, nextEdge);
+            }
+        }
+        return Arrays.copyOf(order, rootsSize);
+    }
+
+    /**
+     * One {@code Project.tsort} walk from {@code root}, appending finished targets to {@code order}.
+     * @return the new size of {@code order}
+     */
+    private int visit(int root, byte[] state, int[] order, int orderSize, int[] stack, int[] nextEdge) {
+        int depth = 0;
+        stack[0] = root;
+        nextEdge[0] = depOffsets[root];
+        state[root] = 1;
+        while (depth >= 0) {
+            int current = stack[depth];
+            if (nextEdge[depth] < depOffsets[current + 1]) {
+                int dep = deps[nextEdge[depth]++];
+                if (dep < 0) {
+                    throw new BuildException("Target \"" + unknownTargets.get(-dep - 1)
+                            + "\" does not exist in the project \"" + projectName + "\". "
+                            + "It is used from target \"" + names[current] + "\".");
+                }
+                if (state[dep] == 0) {
+                    state[dep] = 1;
+                    stack[++depth] = dep;
+                    nextEdge[depth] = depOffsets[dep];
+                } else if (state[dep] == 1) {
+                    StringBuilder message = new StringBuilder("Circular dependency: ").append(names[dep]);
+                    int i = depth;
+                    do {
+                        message.append(" <- ").append(names[stack[i]]);
+                    } while (stack[i--] != dep);
+                    throw new BuildException(message.toString());
+                }
+            } else {
+                state[current] = 2;
+                order[orderSize++] = current;
+                depth--;
+            }
+        }
+        return orderSize;
+    }
+
+    /**
+     * The cycles and missing targets that make Ant fail every target of this project,
+     * cycles first, each in target order.
+     */
+    public List<DependencyProblem> problems() {
+        List<DependencyProblem> problems = new ArrayList<>();
+        for (int c = 0; c < componentCount; c++) {
+            int first = componentMembers[componentOffsets[c]];
+            if (componentOffsets[c + 1] - componentOffsets[c] > 1 || hasSelfDependency(first)) {
+                problems.add(cycleProblem(c));
+            }
+        }
+        problems.sort(Comparator.comparing(problem -> indexOf(problem.getTargets().get(0))));
+
+        List<List<String>> usersByTarget = new ArrayList<>(unknownTargets.size());
+        for (int k = 0; k < unknownTargets.size(); k++) {
+            usersByTarget.add(new ArrayList<>());
+        }
+        for (int v = 0; v < names.length; v++) {
+            for (int e = depOffsets[v]; e < depOffsets[v + 1]; e++) {
+                if (deps[e] < 0) {
+                    List<String> users = usersByTarget.get(-deps[e] - 1);
+                    // A target may name the same missing target twice
+                    if (users.isEmpty() || !users.get(users.size() - 1).equals(names[v])) {
+                        users.add(names[v]);
+                    }
+                }
+            }
+        }
+        for (int k = 0; k < unknownTargets.size(); k++) {
+            List<String> users = usersByTarget.get(k);
+            DependencyProblem problem = new DependencyProblem();
+            problem.setKind(DependencyProblem.MISSING_TARGET);
+            problem.setMissingTarget(unknownTargets.get(k));
+            problem.setTargets(users);
+            StringBuilder message = new StringBuilder("Target \"").append(unknownTargets.get(k))
+                    .append("\" does not exist in the project \"").append(projectName).append("\". ")
+                    .append(users.size() == 1 ? "It is used from target " : "It is used from targets ");
+            for (int i = 0; i < users.size(); i++) {
+                message.append(i > 0 ? ", \"" : "\"").append(users.get(i)).append('"');
+            }
+            problem.setMessage(message.append('.').toString());
+            problems.add(problem);
+        }
+        return problems;
+    }
+
+    private boolean hasSelfDependency(int target) {
+        for (int e = depOffsets[target]; e < depOffsets[target + 1]; e++) {
+            if (deps[e] == target) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A cycle problem for a component: all its members, and the shortest cycle through
+     * its first member in Ant's {@code Circular dependency: a <- b <- a} form.
+     */
+    private DependencyProblem cycleProblem(int c) {
+        int from = componentOffsets[c];
+        int to = componentOffsets[c + 1];
+        int[] members = Arrays.copyOfRange(componentMembers, from, to);
+        Arrays.sort(members);
+        int start = members[0];
+
+        // Breadth-first search inside the component from start back to start
+        Map<Integer, Integer> parents = new HashMap<>();
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(start);
+        int last = -1;
+        while (last < 0 && !queue.isEmpty()) {
+            int v = queue.poll();
+            for (int e = depOffsets[v]; e < depOffsets[v + 1]; e++) {
+                int w = deps[e];
+                if (w < 0 || component[w] != c) {
+                    continue;
+                }
+                if (w == start) {
+                    last = v;
+                    break;
+                }
+                if (!parents.containsKey(w)) {
+                    parents.put(w, v);
+                    queue.add(w);
+                }
+            }
+        }
+
+        // The path is start -> ... -> last -> start; Ant lists it backwards
+        StringBuilder message = new StringBuilder("Circular dependency: ").append(names[start]);
+        for (int v = last; v != start; v = parents.get(v)) {
+            message.append(" <- ").append(names[v]);
+        }
+        message.append(" <- ").append(names[start]);
+
+        List<String> targets = new ArrayList<>(members.length);
+        for (int member : members) {
+            targets.add(names[member]);
+        }
+        DependencyProblem problem = new DependencyProblem();
+        problem.setKind(DependencyProblem.CYCLE);
+        problem.setTargets(targets);
+        problem.setMessage(message.toString());
+        return problem;
+    }
+
+    private BitSet[] closures() {
+        BitSet[] closures = componentClosures;
+        if (closures == null) {
+            synchronized (this) {
+                closures = componentClosures;
+                if (closures == null) {
+                    closures = computeClosures(depOffsets, deps, false);
+                    componentClosures = closures;
+                }
+            }
+        }
+        return closures;
+    }
+
+    private BitSet[] dependentClosures() {
+        BitSet[] closures = componentDependents;
+        if (closures == null) {
+            synchronized (this) {
+                closures = componentDependents;
+                if (closures == null) {
+                    closures = computeClosures(dependentOffsets, dependents, true);
+                    componentDependents = closures;
+                }
+            }
+        }
+        return closures;
+    }
+
+    private int require(String target) {
+        int index = indexOf(target);
+        if (index < 0) {
+            throw new BuildException("Target \"" + target + "\" does not exist in the project \"" + projectName + "\". ");
+        }
+        return index;
+    }
+
+    private List<String> names(BitSet targets) {
+        List<String> result = new ArrayList<>(targets.cardinality());
+        for (int i = targets.nextSetBit(0); i >= 0; i = targets.nextSetBit(i + 1)) {
+            result.add(names[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Iterative Tarjan; fills {@link #component} and returns the number of components.
+     * Components are numbered in completion order, so every edge goes to a component
+     * with the same or a lower number.
+     */
+    private int findComponents() {
+        int n = names.length;
+        int[] lowLink = new int[n];
+        int[] visitIndex = new int[n];
+        Arrays.fill(visitIndex, -1);
+        boolean[] onStack = new boolean[n];
+        int[] sccStack = new int[n];
+        int sccTop = 0;
+        int[] callStack = new int[n];
+        int[] nextEdge = new int[n];
+        int counter = 0;
+        int components = 0;
+
+        for (int start = 0; start < n; start++) {
+            if (visitIndex[start] >= 0) {
+                continue;
+            }
+            int depth = 0;
+            callStack[0] = start;
+            nextEdge[0] = depOffsets[start];
+            visitIndex[start] = lowLink[start] = counter++;
+            sccStack[sccTop++] = start;
+            onStack[start] = true;
+
+            while (depth >= 0) {
+                int v = callStack[depth];
+                if (nextEdge[depth] < depOffsets[v + 1]) {
+                    int w = deps[nextEdge[depth]++];
+                    if (w < 0) {
+                        continue;
+                    }
+                    if (visitIndex[w] < 0) {
+                        visitIndex[w] = lowLink[w] = counter++;
+                        sccStack[sccTop++] = w;
+                        onStack[w] = true;
+                        callStack[++depth] = w;
+                        nextEdge[depth] = depOffsets[w];
+                    } else if (onStack[w]) {
+                        lowLink[v] = Math.min(lowLink[v], visitIndex[w]);
+                    }
+                } else {
+                    if (lowLink[v] == visitIndex[v]) {
+                        int w;
+                        do {
+                            w = sccStack[--sccTop];
+                            onStack[w] = false;
+                            component[w] = components;
+                        } while (w != v);
+                        components++;
+                    }
+                    depth--;
+                    if (depth >= 0) {
+                        int parent = callStack[depth];
+                        lowLink[parent] = Math.min(lowLink[parent], lowLink[v]);
+                    }
+                }
+            }
+        }
+        return components;
+    }
+
+    /**
+     * One closure per component over the given edges. Forward edges only lead to
+     * components with a lower number and reverse edges to a higher one, so walking
+     * the components in that order merges only closures that are already complete.
+     */
+    private BitSet[] computeClosures(int[] edgeOffsets, int[] edges, boolean reverse) {
+        int n = names.length;
+        BitSet[] closures = new BitSet[componentCount];
+        for (int step = 0; step < componentCount; step++) {
+            int c = reverse ? componentCount - 1 - step : step;
+            BitSet closure = new BitSet(n);
+            boolean cyclic = componentOffsets[c + 1] - componentOffsets[c] > 1;
+            for (int m = componentOffsets[c]; m < componentOffsets[c + 1]; m++) {
+                int v = componentMembers[m];
+                for (int e = edgeOffsets[v]; e < edgeOffsets[v + 1]; e++) {
+                    int w = edges[e];
+                    if (w < 0) {
+                        continue;
+                    }
+                    closure.set(w);
+                    if (component[w] != c) {
+                        closure.or(closures[component[w]]);
+                    } else {
+                        // Self dependency
+                        cyclic = true;
+                    }
+                }
+            }
+            if (cyclic) {
+                for (int m = componentOffsets[c]; m < componentOffsets[c + 1]; m++) {
+                    closure.set(componentMembers[m]);
+                }
+            }
+            closures[c] = closure;
+        }
+        return closures;
+    }
+}
@@ -0,0 +1,173 @@
+package com.vscode.ant.graph;
+
+import com.vscode.ant.AntBuildInfo;
+import com.vscode.ant.AntTarget;
+import com.vscode.ant.PropertyExpander;
+import com.vscode.ant.run.ParallelExecutor;
+import org.apache.tools.ant.BuildException;
+
+import java.util.*;
+
+/**
+ * The targets {@code ant [-Dname=value...] [targets...]} would run, in order, without
+ * running anything.
+ *
+ * <p>Follows the executor selected by {@code ant.executor.class}: the default executor
+ * runs each requested target with its own {@code topoSort}, so a dependency shared by
+ * two requested targets runs twice; {@code SingleCheckExecutor} sorts all requested
+ * targets together; {@code IgnoreDependenciesExecutor} runs only the requested targets.
+ * {@link ParallelExecutor} runs the same targets as {@code SingleCheckExecutor}, in the
+ * order shown when it has one thread, otherwise only in order along each dependency chain.</p>
+ *
+ * <p>{@code if} and {@code unless} are evaluated like {@code Target.execute} does, against
+ * the given properties layered over the properties the build file sets outside of targets
+ * ({@link AntBuildInfo#getProperties()}), {@code basedir}, {@code ant.file} and the project
+ * name and default target. A target whose condition fails stays in the plan, since Ant
+ * still runs its dependencies, but is marked as skipped. Properties set by targets that
+ * run earlier are not known here, and top-level properties are taken as they were when
+ * the build file was parsed, without the given properties.</p>
+ */
+public final class ExecutionPlan {
+
+    public static final String EXECUTOR_PROPERTY = "ant.executor.class";
+    public static final String SINGLE_CHECK_EXECUTOR = "org.apache.tools.ant.helper.SingleCheckExecutor";
+    public static final String IGNORE_DEPENDENCIES_EXECUTOR = "org.apache.tools.ant.helper.IgnoreDependenciesExecutor";
+    public static final String PARALLEL_EXECUTOR = ParallelExecutor.class.getName();
+
+    /**
+     * One target of the plan.
+     */
+    public static final class Step {
+        private final String target;
+        private final String skipReason;
+
+        Step(String target, String skipReason) {
+            this.target = target;
+            this.skipReason = skipReason;
+        }
+
+        public String getTarget() {
+            return target;
+        }
+
+        /**
+         * Ant's verbose message for a target whose tasks don't run, or null if they do.
+         */
+        public String getSkipReason() {
+            return skipReason;
+        }
+    }
+
+    private ExecutionPlan() {
+    }
+
+    /**
+     * @param targets the targets on the command line; none means the default target
+     * @param properties user properties, as given with {@code -D}
+     * @throws BuildException with Ant's message if Ant would fail before running anything
+     */
+    public static List<Step> of(AntBuildInfo buildInfo, List<String> targets, Map<String, String> properties) {
+        List<String> requested = targets;
+        if (requested.isEmpty() && buildInfo.getDefaultTarget() != null && !buildInfo.getDefaultTarget().isEmpty()) {
+            requested = Collections.singletonList(buildInfo.getDefaultTarget());
+        }
+
+        DependencyGraph graph = DependencyGraph.of(buildInfo);
+        String executor = properties.get(EXECUTOR_PROPERTY);
+        int[] order;
+        if (SINGLE_CHECK_EXECUTOR.equals(executor) || PARALLEL_EXECUTOR.equals(executor)) {
+            int[] roots = new int[requested.size()];
+            for (int i = 0; i < roots.length; i++) {
+                roots[i] = require(graph, buildInfo, requested.get(i));
+            }
+            order = graph.topoSort(roots);
+        } else if (IGNORE_DEPENDENCIES_EXECUTOR.equals(executor)) {
+            order = new int[requested.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = graph.indexOf(requested.get(i));
+                if (order[i] < 0) {
+                    throw new BuildException("Unknown target " + requested.get(i));
+                }
+            }
+        } else {
+            int[][] orders = new int[requested.size()][];
+            int size = 0;
+            for (int i = 0; i < orders.length; i++) {
+                orders[i] = graph.executionOrder(require(graph, buildInfo, requested.get(i)));
+                size += orders[i].length;
+            }
+            order = new int[size];
+            size = 0;
+            for (int[] part : orders) {
+                System.arraycopy(part, 0, order, size, part.length);
+                size += part.length;
+            }
+        }
+
+        Map<String, String> allProperties = new HashMap<>();
+        putIfNotNull(allProperties, "basedir", buildInfo.getBaseDir());
+        putIfNotNull(allProperties, "ant.file", buildInfo.getBuildFile());
+        putIfNotNull(allProperties, "ant.project.name", buildInfo.getProjectName());
+        putIfNotNull(allProperties, "ant.project.default-target", buildInfo.getDefaultTarget());
+        if (buildInfo.getProperties() != null) {
+            allProperties.putAll(buildInfo.getProperties());
+        }
+        // User properties win over the build file's, as with -D
+        allProperties.putAll(properties);
+
+        List<Step> plan = new ArrayList<>(order.length);
+        for (int index : order) {
+            AntTarget target = buildInfo.getTargets().get(index);
+            plan.add(new Step(target.getName(), skipReason(target, allProperties)));
+        }
+        return plan;
+    }
+
+    private static int require(DependencyGraph graph, AntBuildInfo buildInfo, String target) {
+        int index = graph.indexOf(target);
+        if (index < 0) {
+            throw new BuildException("Target \"" + target + "\" does not exist in the project \""
+                    + buildInfo.getProjectName() + "\". ");
+        }
+        return index;
+    }
+
+    private static void putIfNotNull(Map<String, String> properties, String name, String value) {
+        if (value != null) {
+            properties.put(name, value);
+        }
+    }
+
+    /**
+     * Same checks and messages as {@code Target.execute}.
+     */
+    private static String skipReason(AntTarget target, Map<String, String> properties) {
+        if (target.getIfCondition() != null) {
+            String value = PropertyExpander.replaceProperties(target.getIfCondition(), properties::get);
+            if (!value.isEmpty() && !isTrueOrSet(value, properties)) {
+                return "Skipped because property '" + value + "' not set.";
+            }
+        }
+        if (target.getUnlessCondition() != null) {
+            String value = PropertyExpander.replaceProperties(target.getUnlessCondition(), properties::get);
+            if (!value.isEmpty() && isTrueOrSet(value, properties)) {
+                return "Skipped because property '" + value + "' set.";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@code PropertyHelper.evalAsBooleanOrPropertyName}: true/on/yes and false/off/no
+     * are taken literally, anything else names a property that must be set.
+     */
+    private static boolean isTrueOrSet(String value, Map<String, String> properties) {
+        if ("true".equalsIgnoreCase(value) || "on".equalsIgnoreCase(value) || "yes".equalsIgnoreCase(value)) {
+            return true;
+        }
+        if ("false".equalsIgnoreCase(value) || "off".equalsIgnoreCase(value) || "no".equalsIgnoreCase(value)) {
+            return false;
+        }
+        return properties.containsKey(value);
+    }
+}
@@ -0,0 +1,221 @@
+package com.vscode.ant.run;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.Project;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Turns build events into batches of JSON objects for a client:
+ *
+ * <pre>
+ * {"type": "targetStarted", "time": 12, "target": "compile"}
+ * {"type": "message", "time": 80, "priority": 2, "task": "javac", "message": "Compiling 12 source files to /ws/build"}
+ * {"type": "targetFinished", "time": 950, "target": "compile", "error": "Compile failed; see the compiler error output for details."}
+ * </pre>
+ *
+ * <p>{@code time} is milliseconds since the stream was created. Messages less important
+ * than the stream's level are dropped before anything is built for them, like {@code ant}
+ * does without {@code -verbose}; {@code taskStarted} and {@code taskFinished} are only sent
+ * from {@link Project#MSG_VERBOSE} on. The build itself ends with the response to the
+ * request, so {@code buildStarted} and {@code buildFinished} are not sent.</p>
+ *
+ * <p>Events go through a bounded queue to a thread of their own, which hands them to the
+ * sink in batches of up to {@code batchSize} events, at the latest {@code flushMillis}
+ * after the first event of a batch. When the sink falls behind and the queue is full,
+ * the threads of the build wait for it, so a build logging faster than the client can
+ * read is slowed down instead of buffered without bound.</p>
+ */
+public class BuildEventStream implements BuildListener, AutoCloseable {
+
+    public static final int DEFAULT_BATCH_SIZE = 512;
+    public static final long DEFAULT_FLUSH_MILLIS = 50;
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final JsonObject END = new JsonObject();
+
+    private final Consumer<JsonArray> sink;
+    private final int level;
+    private final int batchSize;
+    private final long flushNanos;
+    private final long start = System.nanoTime();
+    private final BlockingQueue<JsonObject> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writer;
+
+    /**
+     * @param level the least important message priority to send, e.g. {@link Project#MSG_INFO}
+     */
+    public BuildEventStream(Consumer<JsonArray> sink, int level, int batchSize, long flushMillis) {
+        this.sink = sink;
+        this.level = level;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis);
+        writer = new Thread(this::drain, "ant-run-events");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Ant's priority for a level name as given to {@code ant} ({@code -quiet},
+     * {@code -verbose}, {@code -debug}): error, warn(ing), info, verbose or debug.
+     */
+    public static int parseLevel(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "error":
+                return Project.MSG_ERR;
+            case "warn":
+            case "warning":
+                return Project.MSG_WARN;
+            case "info":
+                return Project.MSG_INFO;
+            case "verbose":
+                return Project.MSG_VERBOSE;
+            case "debug":
+                return Project.MSG_DEBUG;
+            default:
+                throw new IllegalArgumentException("Unknown log level: " + name);
+        }
+    }
+
+    @Override
+    public void buildStarted(BuildEvent event) {
+    }
+
+    @Override
+    public void buildFinished(BuildEvent event) {
+    }
+
+    @Override
+    public void targetStarted(BuildEvent event) {
+        JsonObject json = event("targetStarted");
+        json.addProperty("target", event.getTarget().getName());
+        put(json);
+    }
+
+    @Override
+    public void targetFinished(BuildEvent event) {
+        JsonObject json = event("targetFinished");
+        json.addProperty("target", event.getTarget().getName());
+        addError(json, event);
+        put(json);
+    }
+
+    @Override
+    public void taskStarted(BuildEvent event) {
+        if (level >= Project.MSG_VERBOSE) {
+            JsonObject json = event("taskStarted");
+            json.addProperty("task", event.getTask().getTaskName());
+            put(json);
+        }
+    }
+
+    @Override
+    public void taskFinished(BuildEvent event) {
+        if (level >= Project.MSG_VERBOSE) {
+            JsonObject json = event("taskFinished");
+            json.addProperty("task", event.getTask().getTaskName());
+            addError(json, event);
+            put(json);
+        }
+    }
+
+    @Override
+    public void messageLogged(BuildEvent event) {
+        if (event.getPriority() > level) {
+            return;
+        }
+        JsonObject json = event("message");
+        json.addProperty("priority", event.getPriority());
+        if (event.getTask() != null) {
+            json.addProperty("task", event.getTask().getTaskName());
+        }
+        json.addProperty("message", event.getMessage());
+        put(json);
+    }
+
+    /**
+     * Hand the remaining events to the sink and wait until it has taken them.
+     */
+    @Override
+    public void close() {
+        // A cancelled build may leave this thread interrupted; still send what it logged
+        boolean interrupted = Thread.interrupted();
+        try {
+            queue.put(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private JsonObject event(String type) {
+        JsonObject json = new JsonObject();
+        json.addProperty("type", type);
+        json.addProperty("time", (System.nanoTime() - start) / 1_000_000);
+        return json;
+    }
+
+    private static void addError(JsonObject json, BuildEvent event) {
+        Throwable error = event.getException();
+        if (error != null) {
+            json.addProperty("error", error.getMessage() != null ? error.getMessage() : error.toString());
+        }
+    }
+
+    private void put(JsonObject json) {
+        try {
+            queue.put(json);
+        } catch (InterruptedException e) {
+            // A cancelled build: drop the event, but keep the interrupt for the build to see
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        List<JsonObject> batch = new ArrayList<>();
+        try {
+            boolean ended = false;
+            while (!ended) {
+                JsonObject first = queue.take();
+                if (first == END) {
+                    break;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushNanos;
+                while (batch.size() < batchSize) {
+                    JsonObject next = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    if (next == END) {
+                        ended = true;
+                        break;
+                    }
+                    batch.add(next);
+                }
+                JsonArray events = new JsonArray(batch.size());
+                batch.forEach(events::add);
+                batch.clear();
+                try {
+                    sink.accept(events);
+                } catch (RuntimeException e) {
+                    // Keep taking events, or the build would block on a full queue
+                }
+            }
+        } catch (InterruptedException e) {
+            // Nothing interrupts this thread; if something does, stop sending
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.vscode.ant.run;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.MagicNames;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.ProjectHelper;
+import org.apache.tools.ant.input.DefaultInputHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs targets of a build file inside the current JVM, the way {@code org.apache.tools.ant.Main}
+ * does for {@code ant -f <buildFile> [-Dname=value...] [targets...]}.
+ *
+ * <p>Every run gets a new {@link Project}: properties can't be changed once set, and tasks
+ * and references are configured in place, so a project that has run once would behave
+ * differently the next time. What a warm JVM saves is the class loading and JIT of Ant
+ * itself, which is most of what {@code ant} spends before the first target starts.</p>
+ *
+ * <p>Like {@code Main}, a run sends {@code System.out} and {@code System.err} through the
+ * project, so output of in-process tasks reaches the listeners, and reads {@code System.in}
+ * from the project's input, which is empty: tasks asking for input fail instead of reading
+ * the caller's stdin. This only applies to the threads of the run (see {@link RunStreams});
+ * other threads keep writing to the real streams. Runs are still serialized, since builds
+ * of one workspace tend to share output directories.</p>
+ *
+ * <p>{@link #cancel()} fails the build at the next target or task with "Build cancelled"
+ * and interrupts the running thread, so tasks waiting for a process stop waiting.</p>
+ */
+public final class BuildRunner {
+
+    private static final ReentrantLock RUN_LOCK = new ReentrantLock();
+
+    private final File buildFile;
+    private final List<String> targets;
+    private final Map<String, String> properties;
+    private boolean keepGoing;
+    private volatile boolean cancelled;
+    private volatile Thread runner;
+
+    /**
+     * @param targets the targets to run; none means the default target
+     * @param properties user properties, as given with {@code -D}
+     */
+    public BuildRunner(File buildFile, List<String> targets, Map<String, String> properties) {
+        this.buildFile = buildFile;
+        this.targets = targets;
+        this.properties = properties;
+    }
+
+    /**
+     * Keep running targets that don't depend on a failed one, like {@code ant -k}.
+     */
+    public void setKeepGoing(boolean keepGoing) {
+        this.keepGoing = keepGoing;
+    }
+
+    /**
+     * Run the targets, blocking until the build finished and any run started before it.
+     *
+     * @param listeners receive the build events, from {@code buildStarted} to {@code buildFinished}
+     * @throws BuildException when the build fails, with Ant's message and location
+     * @throws InterruptedException when cancelled while waiting for another run
+     */
+    public void run(BuildListener... listeners) throws InterruptedException {
+        runner = Thread.currentThread();
+        try {
+            if (cancelled) {
+                throw new InterruptedException();
+            }
+            RUN_LOCK.lockInterruptibly();
+            try {
+                runLocked(listeners);
+            } finally {
+                RUN_LOCK.unlock();
+            }
+        } finally {
+            runner = null;
+        }
+    }
+
+    /**
+     * Stop the build; safe to call from any thread, before or while it runs.
+     */
+    public void cancel() {
+        cancelled = true;
+        Thread thread = runner;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void runLocked(BuildListener[] listeners) {
+        Project project = new Project();
+        for (BuildListener listener : listeners) {
+            project.addBuildListener(listener);
+        }
+        project.addBuildListener(new CancellationCheck());
+        project.setInputHandler(new DefaultInputHandler());
+        project.setDefaultInputStream(new ByteArrayInputStream(new byte[0]));
+
+        Throwable error = null;
+        RunStreams.Streams streams = RunStreams.start(project);
+        try {
+            project.fireBuildStarted();
+            project.init();
+            properties.forEach(project::setUserProperty);
+            project.setUserProperty(MagicNames.ANT_FILE, buildFile.getAbsolutePath());
+            project.setUserProperty(MagicNames.ANT_FILE_TYPE, MagicNames.ANT_FILE_TYPE_FILE);
+            project.setKeepGoingMode(keepGoing);
+            String antHome = System.getenv("ANT_HOME");
+            if (antHome != null && !antHome.isEmpty() && !properties.containsKey(MagicNames.ANT_HOME)) {
+                project.setUserProperty(MagicNames.ANT_HOME, antHome);
+            }
+            ProjectHelper.configureProject(project, buildFile);
+
+            Vector<String> toRun = new Vector<>(targets);
+            if (toRun.isEmpty() && project.getDefaultTarget() != null) {
+                toRun.add(project.getDefaultTarget());
+            }
+            project.executeTargets(toRun);
+        } catch (RuntimeException | Error e) {
+            error = e;
+            throw e;
+        } finally {
+            streams.close();
+            // Also lets the class loaders created by the build release their jars
+            project.fireBuildFinished(error);
+            for (BuildListener listener : listeners) {
+                project.removeBuildListener(listener);
+            }
+        }
+    }
+
+    /**
+     * Fails the build at the next target or task once it is cancelled. A flag rather than
+     * the interrupt status, which tasks like {@code sleep} clear and carry on.
+     */
+    private final class CancellationCheck implements BuildListener {
+
+        private void check() {
+            if (cancelled) {
+                throw new BuildException("Build cancelled");
+            }
+        }
+
+        @Override
+        public void buildStarted(BuildEvent event) {
+        }
+
+        @Override
+        public void buildFinished(BuildEvent event) {
+        }
+
+        @Override
+        public void targetStarted(BuildEvent event) {
+            check();
+        }
+
+        @Override
+        public void targetFinished(BuildEvent event) {
+        }
+
+        @Override
+        public void taskStarted(BuildEvent event) {
+            check();
+        }
+
+        @Override
+        public void taskFinished(BuildEvent event) {
+        }
+
+        @Override
+        public void messageLogged(BuildEvent event) {
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.vscode.ant.run;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.Task;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records when every target and task of a build started and finished, on which thread
+ * and inside what, for a Chrome trace (see {@link #writeChromeTrace}) and the critical
+ * path through the targets' {@code depends} (see {@link #criticalPath()}).
+ *
+ * <p>Events may come from several threads at once ({@link ParallelExecutor},
+ * {@code parallel}); each thread keeps its own stack of open spans, so a task is nested
+ * in its target or in the task that runs it ({@code sequential}, {@code antcall}, macros).
+ * Targets of sub-projects started by {@code ant} or {@code antcall} are recorded with their
+ * project's name but are not part of the critical path.</p>
+ */
+public class BuildTrace implements BuildListener {
+
+    /**
+     * A target or task run, with times in microseconds since the trace was created.
+     */
+    private static final class Span {
+        final String name;
+        final boolean target;
+        final Object owner;
+        final Thread thread;
+        final int depth;
+        final String project;
+        final List<String> dependencies;
+        final boolean conditional;
+        final long start;
+        long end = -1;
+        boolean ranTasks;
+        String error;
+
+        Span(String name, boolean target, Object owner, Thread thread, int depth, String project,
+             List<String> dependencies, boolean conditional, long start) {
+            this.name = name;
+            this.target = target;
+            this.owner = owner;
+            this.thread = thread;
+            this.depth = depth;
+            this.project = project;
+            this.dependencies = dependencies;
+            this.conditional = conditional;
+            this.start = start;
+        }
+    }
+
+    /**
+     * The chain of targets that bounds the build's wall-clock time however many threads
+     * it gets: each target depends on the one before it, and the sum of their times is
+     * the largest of all such chains.
+     */
+    public static final class CriticalPath {
+        private final List<String> targets;
+        private final List<Long> millis;
+        private final long totalMillis;
+        private final long targetMillis;
+
+        CriticalPath(List<String> targets, List<Long> millis, long totalMillis, long targetMillis) {
+            this.targets = targets;
+            this.millis = millis;
+            this.totalMillis = totalMillis;
+            this.targetMillis = targetMillis;
+        }
+
+        public List<String> getTargets() {
+            return targets;
+        }
+
+        /**
+         * Time of each target on the path, in the same order.
+         */
+        public List<Long> getMillis() {
+            return millis;
+        }
+
+        public long getTotalMillis() {
+            return totalMillis;
+        }
+
+        /**
+         * Time of all targets of the build together; compared with {@link #getTotalMillis()},
+         * how much running independent targets in parallel could gain.
+         */
+        public long getTargetMillis() {
+            return targetMillis;
+        }
+
+        public JsonObject toJson() {
+            JsonArray path = new JsonArray();
+            for (int i = 0; i < targets.size(); i++) {
+                JsonObject step = new JsonObject();
+                step.addProperty("name", targets.get(i));
+                step.addProperty("millis", millis.get(i));
+                path.add(step);
+            }
+            JsonObject json = new JsonObject();
+            json.add("targets", path);
+            json.addProperty("millis", totalMillis);
+            json.addProperty("targetMillis", targetMillis);
+            return json;
+        }
+    }
+
+    private final long start = System.nanoTime();
+    private final List<Span> spans = Collections.synchronizedList(new ArrayList<>());
+    private final Map<Thread, Deque<Span>> open = new ConcurrentHashMap<>();
+    private volatile Project project;
+
+    @Override
+    public void buildStarted(BuildEvent event) {
+        project = event.getProject();
+    }
+
+    @Override
+    public void buildFinished(BuildEvent event) {
+    }
+
+    @Override
+    public void targetStarted(BuildEvent event) {
+        Target target = event.getTarget();
+        begin(target.getName(), true, target, event.getProject(), Collections.list(target.getDependencies()),
+                target.getIf() != null || target.getUnless() != null);
+    }
+
+    @Override
+    public void targetFinished(BuildEvent event) {
+        end(event.getTarget(), event.getException());
+    }
+
+    @Override
+    public void taskStarted(BuildEvent event) {
+        Task task = event.getTask();
+        begin(task.getTaskName(), false, task, event.getProject(), null, false);
+    }
+
+    @Override
+    public void taskFinished(BuildEvent event) {
+        end(event.getTask(), event.getException());
+    }
+
+    @Override
+    public void messageLogged(BuildEvent event) {
+    }
+
+    private long now() {
+        return (System.nanoTime() - start) / 1000;
+    }
+
+    private void begin(String name, boolean target, Object owner, Project eventProject, List<String> dependencies,
+                       boolean conditional) {
+        Thread thread = Thread.currentThread();
+        Deque<Span> stack = open.computeIfAbsent(thread, t -> new ArrayDeque<>());
+        if (!target && !stack.isEmpty()) {
+            stack.peek().ranTasks = true;
+        }
+        String projectName = project == null || eventProject == project ? null : eventProject.getName();
+        Span span = new Span(name, target, owner, thread, stack.size(), projectName, dependencies, conditional, now());
+        stack.push(span);
+        spans.add(span);
+    }
+
+    private void end(Object owner, Throwable error) {
+        long end = now();
+        Deque<Span> stack = open.get(Thread.currentThread());
+        if (stack == null) {
+            return;
+        }
+        // Normally the top one; skip spans whose end was never reported
+        while (!stack.isEmpty()) {
+            Span span = stack.pop();
+            if (span.owner == owner) {
+                span.end = end;
+                if (error != null) {
+                    span.error = error.getMessage() != null ? error.getMessage() : error.toString();
+                }
+                return;
+            }
+        }
+    }
+
+    private List<Span> finishedSpans() {
+        List<Span> finished = new ArrayList<>();
+        synchronized (spans) {
+            for (Span span : spans) {
+                if (span.end >= 0) {
+                    finished.add(span);
+                }
+            }
+        }
+        return finished;
+    }
+
+    /**
+     * Write the recorded spans in the Trace Event Format, which {@code chrome://tracing}
+     * and ui.perfetto.dev open: one complete ({@code "ph": "X"}) event per target and task,
+     * one row per thread.
+     */
+    public void writeChromeTrace(Writer out) throws IOException {
+        List<Span> finished = finishedSpans();
+        Map<Thread, Integer> threadIds = new LinkedHashMap<>();
+        for (Span span : finished) {
+            threadIds.putIfAbsent(span.thread, threadIds.size() + 1);
+        }
+
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject();
+        json.name("displayTimeUnit").value("ms");
+        json.name("traceEvents").beginArray();
+        for (Map.Entry<Thread, Integer> thread : threadIds.entrySet()) {
+            json.beginObject();
+            json.name("name").value("thread_name");
+            json.name("ph").value("M");
+            json.name("pid").value(1);
+            json.name("tid").value(thread.getValue());
+            json.name("args").beginObject().name("name").value(thread.getKey().getName()).endObject();
+            json.endObject();
+        }
+        for (Span span : finished) {
+            json.beginObject();
+            json.name("name").value(span.name);
+            json.name("cat").value(span.target ? "target" : "task");
+            json.name("ph").value("X");
+            json.name("ts").value(span.start);
+            json.name("dur").value(span.end - span.start);
+            json.name("pid").value(1);
+            json.name("tid").value(threadIds.get(span.thread));
+            json.name("args").beginObject();
+            json.name("depth").value(span.depth);
+            if (span.project != null) {
+                json.name("project").value(span.project);
+            }
+            if (span.error != null) {
+                json.name("error").value(span.error);
+            }
+            json.endObject();
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+        json.flush();
+    }
+
+    /**
+     * Time of each target of the build's own project that finished, in the order they
+     * started. A target that ran more than once (the default executor runs a shared
+     * dependency once per requested target) counts with its longest run.
+     */
+    public Map<String, Long> targetMicros() {
+        Map<String, Long> micros = new LinkedHashMap<>();
+        for (Span span : finishedSpans()) {
+            if (span.target && span.project == null) {
+                micros.merge(span.name, span.end - span.start, Math::max);
+            }
+        }
+        return micros;
+    }
+
+    /**
+     * Targets of the build's own project that failed in any of their runs.
+     */
+    Set<String> failedTargets() {
+        Set<String> failed = new HashSet<>();
+        for (Span span : finishedSpans()) {
+            if (span.target && span.project == null && span.error != null) {
+                failed.add(span.name);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Targets of the build's own project whose {@code if} or {@code unless} kept their tasks
+     * from running: targets with a condition that ran no task.
+     */
+    Set<String> skippedTargets() {
+        Set<String> skipped = new HashSet<>();
+        for (Span span : finishedSpans()) {
+            if (span.target && span.project == null && span.conditional && !span.ranTasks) {
+                skipped.add(span.name);
+            }
+        }
+        return skipped;
+    }
+
+    /**
+     * The longest chain of targets through {@code depends}, among the targets of the
+     * build's own project that finished.
+     */
+    public CriticalPath criticalPath() {
+        Map<String, List<String>> dependencies = new HashMap<>();
+        for (Span span : finishedSpans()) {
+            if (span.target && span.project == null) {
+                dependencies.putIfAbsent(span.name, span.dependencies);
+            }
+        }
+        Map<String, Long> micros = targetMicros();
+
+        // A target starts after its dependencies finished, so start order is a topological order
+        Map<String, Long> chain = new HashMap<>();
+        Map<String, String> previous = new HashMap<>();
+        String last = null;
+        long targetMicros = 0;
+        for (Map.Entry<String, Long> target : micros.entrySet()) {
+            long longest = 0;
+            String via = null;
+            for (String dependency : dependencies.get(target.getKey())) {
+                Long length = chain.get(dependency);
+                if (length != null && (via == null || length > longest)) {
+                    longest = length;
+                    via = dependency;
+                }
+            }
+            if (via != null) {
+                previous.put(target.getKey(), via);
+            }
+            long length = longest + target.getValue();
+            chain.put(target.getKey(), length);
+            targetMicros += target.getValue();
+            if (last == null || length > chain.get(last)) {
+                last = target.getKey();
+            }
+        }
+
+        LinkedList<String> path = new LinkedList<>();
+        LinkedList<Long> millis = new LinkedList<>();
+        for (String target = last; target != null; target = previous.get(target)) {
+            path.addFirst(target);
+            millis.addFirst(micros.get(target) / 1000);
+        }
+        return new CriticalPath(path, millis, last != null ? chain.get(last) / 1000 : 0, targetMicros / 1000);
+    }
+}
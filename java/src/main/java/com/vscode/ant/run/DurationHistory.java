@@ -0,0 +1,403 @@
+package com.vscode.ant.run;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * How long targets took in past in-process runs, per build file, to estimate how long the
+ * next run takes and to notice targets that got slower.
+ *
+ * <pre>
+ * int    magic "ANTH"
+ * int    format version
+ * int    record size
+ * record: long build file key, long target key, long finished (epoch millis),
+ *         long duration (microseconds), int flags (1: failed)
+ * </pre>
+ *
+ * <p>Keys are 64-bit FNV-1a hashes of the build file's absolute path and of the target
+ * name, so every record has the same size: a run appends its records with one write, and
+ * reading needs no index. Names are not stored; statistics are looked up by name. Reads
+ * take the whole file with one read; a record cut short by a crash is ignored and
+ * overwritten by the next run. Once the file grows past a threshold it is compacted to
+ * the last {@value #KEEP_RUNS} runs of each target, written to a temporary file that
+ * replaces the history atomically, like the parse cache snapshot.</p>
+ *
+ * <p>Estimates use successful runs only: a target that failed or was cancelled stopped
+ * early and says nothing about how long it takes.</p>
+ */
+public class DurationHistory {
+
+    /**
+     * Runs of one target kept by compaction and used for its statistics.
+     */
+    public static final int KEEP_RUNS = 50;
+
+    private static final int MAGIC = 0x414E5448; // "ANTH"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int RECORD_SIZE = 36;
+    private static final int FAILED = 1;
+    private static final long COMPACT_BYTES = 1 << 20;
+    // Earlier runs a target needs before its latest one can count as a regression
+    private static final int REGRESSION_MIN_RUNS = 5;
+    // How much slower that run has to be, so that targets taking next to no time don't count
+    private static final long REGRESSION_MIN_MICROS = 100_000;
+
+    private final Path file;
+    private long compactAt = COMPACT_BYTES;
+
+    public DurationHistory(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Duration statistics of one target, in milliseconds.
+     */
+    public static final class Stats {
+        private final int runs;
+        private final long p50;
+        private final long p95;
+        private final long last;
+        private final boolean regressed;
+
+        Stats(int runs, long p50, long p95, long last, boolean regressed) {
+            this.runs = runs;
+            this.p50 = p50;
+            this.p95 = p95;
+            this.last = last;
+            this.regressed = regressed;
+        }
+
+        /**
+         * Successful runs the statistics are based on, at most {@link #KEEP_RUNS}.
+         */
+        public int getRuns() {
+            return runs;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP95() {
+            return p95;
+        }
+
+        /**
+         * Duration of the latest successful run.
+         */
+        public long getLast() {
+            return last;
+        }
+
+        /**
+         * Whether the latest run took noticeably longer than the 95th percentile of the runs before it.
+         */
+        public boolean isRegressed() {
+            return regressed;
+        }
+    }
+
+    /**
+     * How long running targets in order is expected to take, from their median durations.
+     */
+    public static final class Prediction {
+        private final Map<String, Stats> stats;
+        private final long millis;
+        private final long p95Millis;
+        private final List<String> unknown;
+
+        Prediction(Map<String, Stats> stats, long millis, long p95Millis, List<String> unknown) {
+            this.stats = stats;
+            this.millis = millis;
+            this.p95Millis = p95Millis;
+            this.unknown = unknown;
+        }
+
+        /**
+         * Statistics of the targets that ran before.
+         */
+        public Map<String, Stats> getStats() {
+            return stats;
+        }
+
+        /**
+         * Sum of the targets' medians.
+         */
+        public long getMillis() {
+            return millis;
+        }
+
+        /**
+         * Sum of the targets' 95th percentiles: a pessimistic estimate.
+         */
+        public long getP95Millis() {
+            return p95Millis;
+        }
+
+        /**
+         * Targets that have no successful run yet and are not part of the estimate.
+         */
+        public List<String> getUnknown() {
+            return unknown;
+        }
+    }
+
+    /**
+     * Append the targets of a finished run, except those skipped by their {@code if} or
+     * {@code unless}, which took no time that says anything about their next run.
+     */
+    public synchronized void record(String buildFile, BuildTrace trace) throws IOException {
+        Map<String, Long> micros = trace.targetMicros();
+        micros.keySet().removeAll(trace.skippedTargets());
+        if (micros.isEmpty()) {
+            return;
+        }
+        Set<String> failed = trace.failedTargets();
+        long buildFileKey = key(buildFile);
+        long finished = System.currentTimeMillis();
+        ByteBuffer records = ByteBuffer.allocate(micros.size() * RECORD_SIZE);
+        for (Map.Entry<String, Long> target : micros.entrySet()) {
+            records.putLong(buildFileKey);
+            records.putLong(key(target.getKey()));
+            records.putLong(finished);
+            records.putLong(target.getValue());
+            records.putInt(failed.contains(target.getKey()) ? FAILED : 0);
+        }
+        records.flip();
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        long size;
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = validEnd(channel);
+            if (position < 0) {
+                // New file, or one of another format: start over
+                channel.truncate(0);
+                channel.write(header(), 0);
+                position = HEADER_SIZE;
+            } else if (position < channel.size()) {
+                channel.truncate(position);
+            }
+            while (records.hasRemaining()) {
+                position += channel.write(records, position);
+            }
+            size = position;
+        }
+        if (size > compactAt) {
+            compact();
+        }
+    }
+
+    /**
+     * Statistics of the given targets of a build file; targets without successful runs are left out.
+     */
+    public synchronized Map<String, Stats> stats(String buildFile, Collection<String> targets) throws IOException {
+        Map<Long, String> names = new HashMap<>();
+        for (String target : targets) {
+            names.put(key(target), target);
+        }
+        Map<String, Stats> stats = new LinkedHashMap<>();
+        for (Map.Entry<Long, long[]> runs : successfulRuns(key(buildFile), names.keySet()).entrySet()) {
+            stats.put(names.get(runs.getKey()), stats(runs.getValue()));
+        }
+        return stats;
+    }
+
+    /**
+     * Estimate how long running the targets in order takes, e.g. the targets of an
+     * {@link com.vscode.ant.graph.ExecutionPlan} that aren't skipped.
+     */
+    public Prediction predict(String buildFile, List<String> targets) throws IOException {
+        Map<String, Stats> stats = stats(buildFile, targets);
+        long millis = 0;
+        long p95Millis = 0;
+        List<String> unknown = new ArrayList<>();
+        for (String target : targets) {
+            Stats targetStats = stats.get(target);
+            if (targetStats == null) {
+                unknown.add(target);
+            } else {
+                millis += targetStats.getP50();
+                p95Millis += targetStats.getP95();
+            }
+        }
+        return new Prediction(stats, millis, p95Millis, unknown);
+    }
+
+    /**
+     * Rewrite the history with only the last {@link #KEEP_RUNS} runs of each target.
+     */
+    public synchronized void compact() throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        // Records of each build file and target, latest last
+        Map<List<Long>, Deque<ByteBuffer>> kept = new LinkedHashMap<>();
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = readRecords(channel);
+            if (buffer == null) {
+                return;
+            }
+            while (buffer.remaining() >= RECORD_SIZE) {
+                ByteBuffer record = buffer.slice();
+                record.limit(RECORD_SIZE);
+                buffer.position(buffer.position() + RECORD_SIZE);
+                Deque<ByteBuffer> runs = kept.computeIfAbsent(Arrays.asList(record.getLong(0), record.getLong(8)),
+                        k -> new ArrayDeque<>());
+                runs.addLast(record);
+                count++;
+                if (runs.size() > KEEP_RUNS) {
+                    runs.removeFirst();
+                    count--;
+                }
+            }
+        }
+
+        // Back in the order the runs finished, so the latest runs stay last
+        List<ByteBuffer> records = new ArrayList<>(count);
+        kept.values().forEach(records::addAll);
+        records.sort(Comparator.comparingLong(record -> record.getLong(16)));
+
+        Path dir = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.write(header());
+                for (ByteBuffer record : records) {
+                    channel.write(record);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        // Don't compact again on every run when many targets keep the history large
+        compactAt = Math.max(COMPACT_BYTES, 2L * (HEADER_SIZE + (long) count * RECORD_SIZE));
+    }
+
+    /**
+     * Durations in microseconds of the last successful runs of targets of a build file, oldest first.
+     */
+    private Map<Long, long[]> successfulRuns(long buildFileKey, Set<Long> targetKeys) throws IOException {
+        Map<Long, Deque<Long>> runs = new LinkedHashMap<>();
+        if (!Files.isRegularFile(file)) {
+            return Collections.emptyMap();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = readRecords(channel);
+            if (buffer == null) {
+                return Collections.emptyMap();
+            }
+            while (buffer.remaining() >= RECORD_SIZE) {
+                long recordBuildFile = buffer.getLong();
+                long target = buffer.getLong();
+                buffer.getLong();
+                long micros = buffer.getLong();
+                int flags = buffer.getInt();
+                if (recordBuildFile != buildFileKey || !targetKeys.contains(target) || (flags & FAILED) != 0) {
+                    continue;
+                }
+                Deque<Long> targetRuns = runs.computeIfAbsent(target, k -> new ArrayDeque<>());
+                targetRuns.addLast(micros);
+                if (targetRuns.size() > KEEP_RUNS) {
+                    targetRuns.removeFirst();
+                }
+            }
+        }
+        Map<Long, long[]> result = new LinkedHashMap<>();
+        runs.forEach((target, durations) -> result.put(target, durations.stream().mapToLong(Long::longValue).toArray()));
+        return result;
+    }
+
+    /**
+     * Statistics of a target's durations in microseconds, oldest first.
+     */
+    static Stats stats(long[] micros) {
+        long last = micros[micros.length - 1];
+        long[] sorted = micros.clone();
+        Arrays.sort(sorted);
+        boolean regressed = false;
+        if (micros.length > REGRESSION_MIN_RUNS) {
+            long[] before = Arrays.copyOf(micros, micros.length - 1);
+            Arrays.sort(before);
+            regressed = last - percentile(before, 95) >= REGRESSION_MIN_MICROS;
+        }
+        return new Stats(micros.length, percentile(sorted, 50) / 1000, percentile(sorted, 95) / 1000,
+                last / 1000, regressed);
+    }
+
+    /**
+     * Nearest-rank percentile of sorted values.
+     */
+    private static long percentile(long[] sorted, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    /**
+     * Read the records of the history onto the heap, or null when it has another format.
+     * Not mapped: a mapping outlives the channel until it is garbage collected, and on
+     * Windows a mapped file can neither be truncated by {@link #record} nor replaced by
+     * {@link #compact()}.
+     */
+    private static ByteBuffer readRecords(FileChannel channel) throws IOException {
+        long end = validEnd(channel);
+        if (end < 0) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - HEADER_SIZE));
+        while (buffer.hasRemaining() && channel.read(buffer, HEADER_SIZE + buffer.position()) >= 0) {
+            // Read all records
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * End of the last whole record, or -1 when the file has no header of this format.
+     */
+    private static long validEnd(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE) {
+            return -1;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+            // Read the whole header
+        }
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION || header.getInt() != RECORD_SIZE) {
+            return -1;
+        }
+        return HEADER_SIZE + (size - HEADER_SIZE) / RECORD_SIZE * RECORD_SIZE;
+    }
+
+    private static ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE);
+        header.flip();
+        return header;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the UTF-8 bytes.
+     */
+    private static long key(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
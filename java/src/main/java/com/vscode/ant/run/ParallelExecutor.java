@@ -0,0 +1,306 @@
+package com.vscode.ant.run;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.Executor;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.helper.SingleCheckExecutor;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Target executor that runs independent targets at the same time, selected with
+ * {@code -Dant.executor.class=com.vscode.ant.run.ParallelExecutor} and sized with
+ * {@code -Dant.executor.threads=N} (the number of processors by default).
+ *
+ * <p>Like {@link SingleCheckExecutor}, the requested targets are sorted together with
+ * {@code Project.topoSort}, so each target runs at most once and unknown targets or
+ * cycles fail before anything runs. A target then starts on a work-stealing pool as soon
+ * as all targets in its {@code depends} have finished, so every dependency chain keeps
+ * Ant's order, but targets with no path between them in the graph may run in any order
+ * or at once: a build that relies on the left-to-right order of {@code depends} without
+ * declaring it has to declare it. Of the targets ready to run, the one that comes first in
+ * {@code topoSort}'s order starts first, so with one thread the targets run in exactly
+ * the order {@code SingleCheckExecutor} runs them. {@code if} and {@code unless} are
+ * checked when a target starts, as usual.</p>
+ *
+ * <p>The first failure stops the build: no further targets start and targets still
+ * running fail at their next task, with their threads interrupted so that waits for
+ * processes end. In keep-going mode ({@code -k}) the other branches carry on and only
+ * targets depending on a failed one are left out, with the same messages as Ant.
+ * Sub-projects ({@code ant}, {@code antcall}) run their targets sequentially.</p>
+ */
+public class ParallelExecutor implements Executor {
+
+    public static final String THREADS_PROPERTY = "ant.executor.threads";
+
+    private static final Executor SUB_PROJECT_EXECUTOR = new SingleCheckExecutor();
+
+    @Override
+    public void executeTargets(Project project, String[] targetNames) throws BuildException {
+        Vector<Target> sorted = project.topoSort(targetNames, project.getTargets(), false);
+        new Run(project, sorted, threads(project)).execute();
+    }
+
+    @Override
+    public Executor getSubProjectExecutor() {
+        return SUB_PROJECT_EXECUTOR;
+    }
+
+    private static int threads(Project project) {
+        String value = project.getProperty(THREADS_PROPERTY);
+        if (value == null || value.trim().isEmpty()) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        try {
+            int threads = Integer.parseInt(value.trim());
+            if (threads < 1) {
+                throw new BuildException(THREADS_PROPERTY + " must be at least 1, not " + threads);
+            }
+            return threads;
+        } catch (NumberFormatException e) {
+            throw new BuildException(THREADS_PROPERTY + " is not a number: " + value);
+        }
+    }
+
+    /**
+     * State of one {@code executeTargets} call.
+     */
+    private static final class Run implements BuildListener {
+        private final Project project;
+        private final Target[] targets;
+        private final int[][] dependencies;
+        private final int[][] dependents;
+        private final AtomicInteger[] pending;
+        private final boolean[] succeeded;
+        private final boolean keepGoing;
+        private final ForkJoinPool pool;
+        private final Set<Thread> running = ConcurrentHashMap.newKeySet();
+        // Indexes into targets, so the earliest ready target in topoSort's order runs next
+        private final PriorityBlockingQueue<Integer> ready = new PriorityBlockingQueue<>();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private final AtomicReference<BuildException> failure = new AtomicReference<>();
+        private volatile boolean stopped;
+
+        Run(Project project, List<Target> sorted, int threads) {
+            this.project = project;
+            this.keepGoing = project.isKeepGoingMode();
+            int size = sorted.size();
+            targets = sorted.toArray(new Target[0]);
+            succeeded = new boolean[size];
+            pending = new AtomicInteger[size];
+
+            Map<String, Integer> indexes = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                indexes.put(targets[i].getName(), i);
+            }
+            // topoSort returned every dependency, so all names resolve
+            dependencies = new int[size][];
+            List<List<Integer>> dependentLists = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                dependentLists.add(new ArrayList<>());
+            }
+            for (int i = 0; i < size; i++) {
+                List<String> names = Collections.list(targets[i].getDependencies());
+                dependencies[i] = new int[names.size()];
+                for (int j = 0; j < dependencies[i].length; j++) {
+                    dependencies[i][j] = indexes.get(names.get(j));
+                    dependentLists.get(dependencies[i][j]).add(i);
+                }
+                pending[i] = new AtomicInteger(dependencies[i].length);
+            }
+            dependents = new int[size][];
+            for (int i = 0; i < size; i++) {
+                dependents[i] = dependentLists.get(i).stream().mapToInt(Integer::intValue).toArray();
+            }
+
+            ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+            AtomicInteger threadCount = new AtomicInteger();
+            pool = new ForkJoinPool(Math.min(threads, Math.max(1, size)), forkJoinPool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                thread.setName("ant-target-" + threadCount.incrementAndGet());
+                thread.setContextClassLoader(contextLoader);
+                return thread;
+            }, null, true);
+        }
+
+        void execute() {
+            project.addBuildListener(this);
+            try {
+                inFlight.incrementAndGet();
+                for (int i = 0; i < targets.length; i++) {
+                    // Not pending[i]: targets started here may already have counted it down
+                    if (dependencies[i].length == 0) {
+                        submit(i);
+                    }
+                }
+                finished();
+                awaitDone();
+            } finally {
+                project.removeBuildListener(this);
+                pool.shutdownNow();
+            }
+            BuildException error = failure.get();
+            if (error != null) {
+                throw error;
+            }
+        }
+
+        private void awaitDone() {
+            try {
+                done.get();
+            } catch (InterruptedException e) {
+                // The build was cancelled: stop the targets still running and wait for them
+                fail(new BuildException("Build cancelled"), true);
+                done.join();
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new BuildException(e.getCause());
+            }
+        }
+
+        /**
+         * Make a target ready and add a pool task to run one ready target.
+         */
+        private void submit(int index) {
+            inFlight.incrementAndGet();
+            ready.add(index);
+            pool.execute(() -> {
+                try {
+                    Integer next = ready.poll();
+                    if (next != null && !stopped) {
+                        perform(next);
+                    }
+                } finally {
+                    finished();
+                }
+            });
+        }
+
+        private void finished() {
+            if (inFlight.decrementAndGet() == 0) {
+                done.complete(null);
+            }
+        }
+
+        private void perform(int index) {
+            Target target = targets[index];
+            Throwable thrown = null;
+            running.add(Thread.currentThread());
+            try {
+                target.performTasks();
+            } catch (Throwable e) {
+                thrown = e;
+            } finally {
+                running.remove(Thread.currentThread());
+                // Don't let an interrupt meant for this target reach the next one on this thread
+                Thread.interrupted();
+            }
+
+            if (thrown == null) {
+                succeeded[index] = true;
+            } else if (!keepGoing) {
+                fail(thrown instanceof BuildException ? (BuildException) thrown : new BuildException(thrown), true);
+                return;
+            } else {
+                project.log(target, "Target '" + target.getName() + "' failed with message '"
+                        + thrown.getMessage() + "'.", Project.MSG_ERR);
+                fail(thrown instanceof BuildException ? (BuildException) thrown : new BuildException(thrown), false);
+            }
+            release(index);
+        }
+
+        /**
+         * Start the dependents of a finished target whose dependencies have all finished,
+         * or, in keep-going mode, skip those whose dependencies didn't all succeed.
+         */
+        private void release(int index) {
+            for (int dependent : dependents[index]) {
+                if (pending[dependent].decrementAndGet() != 0 || stopped) {
+                    continue;
+                }
+                int failed = failedDependency(dependent);
+                if (failed < 0) {
+                    submit(dependent);
+                } else {
+                    Target target = targets[dependent];
+                    project.log(target, "Cannot execute '" + target.getName() + "' - '"
+                            + targets[failed].getName() + "' failed or was not executed.", Project.MSG_ERR);
+                    release(dependent);
+                }
+            }
+        }
+
+        /**
+         * The first dependency that didn't succeed, or -1. Every dependency wrote its
+         * {@code succeeded} entry before counting down {@code pending}, so all are visible.
+         */
+        private int failedDependency(int index) {
+            for (int dependency : dependencies[index]) {
+                if (!succeeded[dependency]) {
+                    return dependency;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Record the first failure; when stopping, start nothing more and interrupt the
+         * targets still running.
+         */
+        private void fail(BuildException error, boolean stop) {
+            failure.compareAndSet(null, error);
+            if (stop && !stopped) {
+                stopped = true;
+                for (Thread thread : running) {
+                    if (thread != Thread.currentThread()) {
+                        thread.interrupt();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void taskStarted(BuildEvent event) {
+            // Fail the targets still running on the pool at their next task
+            if (stopped && running.contains(Thread.currentThread())) {
+                throw new BuildException("Cancelled since another target failed");
+            }
+        }
+
+        @Override
+        public void buildStarted(BuildEvent event) {
+        }
+
+        @Override
+        public void buildFinished(BuildEvent event) {
+        }
+
+        @Override
+        public void targetStarted(BuildEvent event) {
+        }
+
+        @Override
+        public void targetFinished(BuildEvent event) {
+        }
+
+        @Override
+        public void taskFinished(BuildEvent event) {
+        }
+
+        @Override
+        public void messageLogged(BuildEvent event) {
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.vscode.ant.run;
+
+import org.apache.tools.ant.DemuxInputStream;
+import org.apache.tools.ant.DemuxOutputStream;
+import org.apache.tools.ant.Project;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * {@code System.out}, {@code System.err} and {@code System.in} for in-process runs. They
+ * are replaced once, by streams that send a thread belonging to a run to that run's
+ * project, like {@code org.apache.tools.ant.Main} does, and every other thread to the
+ * streams they replaced. Swapping them for the length of a run would also send the output
+ * of unrelated threads into the build: the server's own messages, file watching, parses
+ * running at the same time.
+ *
+ * <p>A thread belongs to a run from {@link #start} to {@link Streams#close()}, and so do
+ * the threads it starts, like those of {@link ParallelExecutor} or {@code <parallel>};
+ * threads that outlive the run fall back to the original streams when it ends.</p>
+ */
+final class RunStreams {
+
+    private static final InheritableThreadLocal<Streams> CURRENT = new InheritableThreadLocal<>();
+    private static boolean installed;
+
+    private RunStreams() {
+    }
+
+    /**
+     * Where the threads of one run read and write, until it is closed.
+     */
+    static final class Streams implements AutoCloseable {
+        private volatile PrintStream out;
+        private volatile PrintStream err;
+        private volatile InputStream in;
+
+        private Streams(Project project) {
+            out = new PrintStream(new DemuxOutputStream(project, false));
+            err = new PrintStream(new DemuxOutputStream(project, true));
+            in = new DemuxInputStream(project);
+        }
+
+        /**
+         * Flush what the run's threads wrote and detach them from the run; called by the
+         * thread that started it.
+         */
+        @Override
+        public void close() {
+            PrintStream runOut = out;
+            PrintStream runErr = err;
+            out = null;
+            err = null;
+            in = null;
+            runOut.flush();
+            runErr.flush();
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Send the standard streams of the current thread, and of threads it starts, to the project.
+     */
+    static Streams start(Project project) {
+        install();
+        Streams streams = new Streams(project);
+        CURRENT.set(streams);
+        return streams;
+    }
+
+    private static synchronized void install() {
+        if (installed) {
+            return;
+        }
+        System.setOut(new PrintStream(new Output(System.out, false), true));
+        System.setErr(new PrintStream(new Output(System.err, true), true));
+        System.setIn(new Input(System.in));
+        installed = true;
+    }
+
+    private static final class Output extends OutputStream {
+        private final PrintStream fallback;
+        private final boolean error;
+
+        Output(PrintStream fallback, boolean error) {
+            this.fallback = fallback;
+            this.error = error;
+        }
+
+        private PrintStream target() {
+            Streams streams = CURRENT.get();
+            PrintStream target = streams == null ? null : error ? streams.err : streams.out;
+            return target != null ? target : fallback;
+        }
+
+        @Override
+        public void write(int b) {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            target().write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+            target().flush();
+        }
+    }
+
+    private static final class Input extends InputStream {
+        private final InputStream fallback;
+
+        Input(InputStream fallback) {
+            this.fallback = fallback;
+        }
+
+        private InputStream source() {
+            Streams streams = CURRENT.get();
+            InputStream source = streams == null ? null : streams.in;
+            return source != null ? source : fallback;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return source().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return source().read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return source().available();
+        }
+    }
+}
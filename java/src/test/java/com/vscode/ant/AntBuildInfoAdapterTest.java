@@ -0,0 +1,90 @@
+package com.vscode.ant;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AntBuildInfoAdapterTest {
+
+    private final Gson reflective = new Gson();
+    private final Gson adapters = AntBuildInfoAdapter.createGson();
+
+    private static AntBuildInfo complete() {
+        AntTarget target = new AntTarget();
+        target.setName("compile");
+        target.setDescription("Compile \"the\" sources");
+        target.setDependencies(List.of("init", "common.prepare"));
+        target.setIfCondition("${mode}");
+        target.setUnlessCondition("skip.compile");
+        target.setDefault(true);
+
+        DependencyProblem cycle = new DependencyProblem();
+        cycle.setKind("cycle");
+        cycle.setMessage("Circular dependency: a <- b <- a");
+        cycle.setTargets(List.of("a", "b", "a"));
+        DependencyProblem missing = new DependencyProblem();
+        missing.setKind("missing");
+        missing.setMessage("Target \"gone\" does not exist in the project \"app\". It is used from target \"compile\".");
+        missing.setTargets(List.of("compile"));
+        missing.setMissingTarget("gone");
+
+        AntBuildInfo buildInfo = new AntBuildInfo();
+        buildInfo.setProjectName("app");
+        buildInfo.setDefaultTarget("compile");
+        buildInfo.setBaseDir("/work/app");
+        buildInfo.setDescription("Line one\nline two");
+        buildInfo.setBuildFile("/work/app/build.xml");
+        buildInfo.setTargets(List.of(target, new AntTarget()));
+        buildInfo.setDependencyProblems(List.of(cycle, missing));
+        buildInfo.setSourceFiles(List.of("/work/app/build.xml", "/work/app/common.xml"));
+        // Transient, so left out by both
+        buildInfo.setProperties(Map.of("skip.tests", "true"));
+        return buildInfo;
+    }
+
+    private static AntBuildInfo withoutOptionalFields() {
+        AntTarget target = new AntTarget();
+        target.setName("dist");
+        target.setDependencies(new ArrayList<>());
+
+        AntBuildInfo buildInfo = new AntBuildInfo();
+        buildInfo.setProjectName("app");
+        buildInfo.setBuildFile("/work/app/build.xml");
+        buildInfo.setTargets(List.of(target));
+        return buildInfo;
+    }
+
+    @Test
+    void writesLikeReflectiveGson() {
+        for (AntBuildInfo buildInfo : List.of(complete(), withoutOptionalFields(), new AntBuildInfo())) {
+            assertEquals(reflective.toJson(buildInfo), adapters.toJson(buildInfo));
+        }
+    }
+
+    @Test
+    void readsBackTheSameModel() {
+        for (AntBuildInfo buildInfo : List.of(complete(), withoutOptionalFields(), new AntBuildInfo())) {
+            String json = reflective.toJson(buildInfo);
+            AntBuildInfo read = adapters.fromJson(json, AntBuildInfo.class);
+            assertEquals(json, reflective.toJson(read));
+            assertEquals(reflective.toJson(reflective.fromJson(json, AntBuildInfo.class)), reflective.toJson(read));
+        }
+    }
+
+    @Test
+    void writesTheFieldNamesTheExtensionReads() {
+        String json = adapters.toJson(complete());
+        for (String name : new String[] {"\"projectName\"", "\"defaultTarget\"", "\"baseDir\"", "\"description\"",
+                "\"buildFile\"", "\"targets\"", "\"name\"", "\"dependencies\"", "\"ifCondition\"",
+                "\"unlessCondition\"", "\"isDefault\"", "\"dependencyProblems\"", "\"kind\"", "\"message\"",
+                "\"missingTarget\"", "\"sourceFiles\""}) {
+            assertTrue(json.contains(name), name);
+        }
+    }
+}
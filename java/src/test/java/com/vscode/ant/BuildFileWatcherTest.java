@@ -0,0 +1,133 @@
+package com.vscode.ant;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BuildFileWatcherTest {
+
+    // Generous, since some platforms poll for changes instead of being notified
+    private static final long TIMEOUT_SECONDS = 30;
+
+    @TempDir
+    Path dir;
+
+    private final BlockingQueue<Change> changes = new LinkedBlockingQueue<>();
+    private final AtomicInteger parses = new AtomicInteger();
+    private BuildFileWatcher watcher;
+    private File buildFile;
+
+    private static final class Change {
+        final AntBuildInfo buildInfo;
+        final Throwable error;
+
+        Change(AntBuildInfo buildInfo, Throwable error) {
+            this.buildInfo = buildInfo;
+            this.error = error;
+        }
+    }
+
+    @BeforeEach
+    void watch() throws Exception {
+        buildFile = dir.resolve("build.xml").toFile();
+        write(dir.resolve("build.xml"), "<project name=\"app\" default=\"main\">\n"
+                + "    <import file=\"common/common.xml\"/>\n"
+                + "    <target name=\"main\" depends=\"common.first\"/>\n"
+                + "</project>\n");
+        writeCommon("first");
+
+        ParseCache cache = new ParseCache() {
+            @Override
+            public AntBuildInfo get(File file, boolean outline) throws IOException {
+                parses.incrementAndGet();
+                return super.get(file, outline);
+            }
+        };
+        watcher = new BuildFileWatcher(cache, (file, buildInfo, error) -> changes.add(new Change(buildInfo, error)));
+        assertEquals(List.of("common.first", "first", "main"), targetNames(watcher.watch(buildFile, true)));
+        parses.set(0);
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        watcher.close();
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeCommon(String... targets) throws IOException {
+        StringBuilder xml = new StringBuilder("<project name=\"common\">\n");
+        for (String target : targets) {
+            xml.append("    <target name=\"").append(target).append("\"/>\n");
+        }
+        write(dir.resolve("common/common.xml"), xml.append("</project>\n").toString());
+    }
+
+    private static List<String> targetNames(AntBuildInfo buildInfo) {
+        return buildInfo.getTargets().stream().map(AntTarget::getName).sorted().collect(Collectors.toList());
+    }
+
+    private Change next() throws InterruptedException {
+        Change change = changes.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(change, "no change reported");
+        return change;
+    }
+
+    @Test
+    void editingAnImportReparses() throws Exception {
+        writeCommon("first", "second");
+
+        Change change = next();
+        assertNull(change.error);
+        assertEquals(List.of("common.first", "common.second", "first", "main", "second"),
+                targetNames(change.buildInfo));
+    }
+
+    @Test
+    void recreatingADeletedImportDirectoryReparses() throws Exception {
+        Files.delete(dir.resolve("common/common.xml"));
+        Files.delete(dir.resolve("common"));
+        assertNotNull(next().error);
+
+        writeCommon("first", "again");
+        Change change = next();
+        assertNull(change.error);
+        assertEquals(List.of("again", "common.again", "common.first", "first", "main"),
+                targetNames(change.buildInfo));
+    }
+
+    @Test
+    void burstOfChangesReparsesOnce() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            writeCommon("first", "burst" + i);
+            Thread.sleep(BuildFileWatcher.QUIET_MILLIS / 10);
+        }
+
+        Change change = next();
+        assertEquals(List.of("burst9", "common.burst9", "common.first", "first", "main"),
+                targetNames(change.buildInfo));
+        Thread.sleep(BuildFileWatcher.QUIET_MILLIS * 3);
+        assertNull(changes.poll());
+        assertEquals(1, parses.get());
+    }
+}
@@ -0,0 +1,95 @@
+package com.vscode.ant;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GlobMatcherTest {
+
+    private static boolean matches(String glob, String relativePath) {
+        String name = relativePath.substring(relativePath.lastIndexOf('/') + 1);
+        return new GlobMatcher(List.of(glob)).matches(relativePath, name);
+    }
+
+    @Test
+    void namesMatchAtAnyDepth() {
+        assertTrue(matches("node_modules", "node_modules"));
+        assertTrue(matches("node_modules", "web/app/node_modules"));
+        assertFalse(matches("node_modules", "web/node_modules_old"));
+        assertTrue(matches("*.tmp", "a/b/x.tmp"));
+        assertFalse(matches("*.tmp", "a/b/x.tmpl"));
+        assertTrue(matches("v?", "lib/v1"));
+        assertFalse(matches("v?", "lib/v12"));
+        assertTrue(matches("dist/", "modules/dist"));
+    }
+
+    @Test
+    void leadingSlashOrDotAnchorsAtTheRoot() {
+        for (String glob : new String[] {"/build", "./build"}) {
+            assertTrue(matches(glob, "build"), glob);
+            assertFalse(matches(glob, "module/build"), glob);
+        }
+    }
+
+    @Test
+    void leadingDoubleStarIsTheSameAsAName() {
+        assertTrue(matches("**/target", "target"));
+        assertTrue(matches("**/target", "a/b/target"));
+        assertTrue(matches("**/**/target", "a/target"));
+        assertEquals("(?:(?:.*/)?a/[^/]*)", GlobMatcher.toRegex("**/a/*"));
+    }
+
+    @Test
+    void trailingDoubleStarAlsoMatchesTheDirectory() {
+        assertTrue(matches("build/**", "build"));
+        assertTrue(matches("build/**", "build/classes/a"));
+        assertFalse(matches("build/**", "builder"));
+        assertFalse(matches("build/**", "module/build"));
+    }
+
+    @Test
+    void pathGlobsKeepStarsWithinOneName() {
+        assertTrue(matches("**/generated/*.xml", "generated/a.xml"));
+        assertTrue(matches("**/generated/*.xml", "src/generated/a.xml"));
+        assertFalse(matches("**/generated/*.xml", "src/generated/sub/a.xml"));
+        assertTrue(matches("src/**/gen", "src/a/b/gen"));
+        assertTrue(matches("src\\out", "src/out"));
+    }
+
+    @Test
+    void bracesMatchEitherAlternative() {
+        assertTrue(matches("{bin,out}", "a/bin"));
+        assertTrue(matches("{bin,out}", "a/out"));
+        assertFalse(matches("{bin,out}", "a/obj"));
+        assertTrue(matches("*.{class,jar}", "lib/x.jar"));
+        assertFalse(matches("*.{class,jar}", "lib/x.java"));
+        assertTrue(matches("a,b}", "a,b}"));
+    }
+
+    @Test
+    void regexCharactersAreLiteral() {
+        assertTrue(matches("*(1).txt", "a/copy(1).txt"));
+        assertFalse(matches("*(1).txt", "a/copy1-txt"));
+        assertTrue(matches("c++/*", "c++/x"));
+    }
+
+    @Test
+    void emptyGlobsMatchNothing() {
+        GlobMatcher matcher = new GlobMatcher(List.of("", "  ", "/", "./"));
+        assertFalse(matcher.matches("a", "a"));
+        assertFalse(matcher.matches("a/b", "b"));
+    }
+
+    @Test
+    void caseIsIgnoredOnlyOnWindows() {
+        boolean windows = File.separatorChar == '\\';
+        assertEquals(windows, matches("build", "Build"));
+        assertEquals(windows, matches("*.TMP", "x.tmp"));
+        assertEquals(windows, matches("out/**", "OUT/x"));
+    }
+}
@@ -0,0 +1,66 @@
+package com.vscode.ant;
+
+import com.google.gson.Gson;
+import org.apache.tools.ant.BuildException;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutlineParserTest {
+
+    private static File fixture(String name) throws URISyntaxException {
+        return Paths.get(OutlineParserTest.class.getResource("/outline/" + name).toURI()).toFile();
+    }
+
+    @Test
+    void outlineMatchesFullParse() throws Exception {
+        File buildFile = fixture("build.xml");
+        Gson gson = AntBuildInfoAdapter.createGson();
+
+        String full = gson.toJson(AntParser.parseBuildFile(buildFile, false));
+        String outline = gson.toJson(AntParser.parseBuildFile(buildFile, true));
+
+        assertEquals(full, outline);
+    }
+
+    @Test
+    void namesImportedAndIncludedTargetsLikeProjectHelper2() throws Exception {
+        AntBuildInfo buildInfo = OutlineParser.parseBuildFile(fixture("build.xml"));
+        List<String> names = buildInfo.getTargets().stream().map(AntTarget::getName).collect(Collectors.toList());
+
+        // Imported targets under both names, the main file's init winning over the imported one
+        assertTrue(names.contains("prepare"));
+        assertTrue(names.contains("common.prepare"));
+        assertTrue(names.contains("common.init"));
+        // Included targets only under their prefixed name
+        assertTrue(names.contains("tools.package"));
+        assertFalse(names.contains("package"));
+
+        AntTarget init = buildInfo.getTargets().stream().filter(t -> t.getName().equals("init")).findFirst().get();
+        assertEquals("skip.init", init.getUnlessCondition());
+        AntTarget toolsPackage = buildInfo.getTargets().stream()
+                .filter(t -> t.getName().equals("tools.package")).findFirst().get();
+        assertEquals(List.of("tools.check"), toolsPackage.getDependencies());
+    }
+
+    @Test
+    void includeLoopFailsInsteadOfOverflowing() throws Exception {
+        File buildFile = fixture("loop/a.xml");
+
+        BuildException full = assertThrows(BuildException.class, () -> AntParser.parseBuildFile(buildFile, false));
+        BuildException outline = assertThrows(BuildException.class, () -> AntParser.parseBuildFile(buildFile, true));
+
+        // Ant adds the location of every enclosing include to the message
+        assertTrue(outline.getMessage().startsWith("Cannot include " + buildFile.getPath()), outline.getMessage());
+        assertTrue(full.getMessage().endsWith(outline.getMessage()), full.getMessage());
+    }
+}
@@ -0,0 +1,130 @@
+package com.vscode.ant;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParseCacheStoreTest {
+
+    private final Gson gson = AntBuildInfoAdapter.createGson();
+
+    @TempDir
+    Path dir;
+
+    private static Map<String, ParseCache.Entry> parse(boolean... outline) throws Exception {
+        File buildFile = Paths.get(ParseCacheStoreTest.class.getResource("/outline/build.xml").toURI()).toFile();
+        Map<String, ParseCache.Entry> entries = new LinkedHashMap<>();
+        for (boolean mode : outline) {
+            entries.put((mode ? "outline:" : "full:") + buildFile.getAbsolutePath(),
+                    ParseCache.Entry.of(AntParser.parseBuildFile(buildFile, mode)));
+        }
+        return entries;
+    }
+
+    @Test
+    void roundTrip() throws Exception {
+        Map<String, ParseCache.Entry> entries = parse(false, true);
+        Path snapshot = dir.resolve("cache.bin");
+        ParseCacheStore.save(snapshot, entries);
+
+        Map<String, ParseCache.Entry> loaded = ParseCacheStore.load(snapshot);
+
+        assertEquals(entries.keySet(), loaded.keySet());
+        for (String key : entries.keySet()) {
+            ParseCache.Entry saved = entries.get(key);
+            ParseCache.Entry restored = loaded.get(key);
+            assertEquals(gson.toJson(saved.buildInfo), gson.toJson(restored.buildInfo));
+            assertEquals(saved.buildInfo.getProperties(), restored.buildInfo.getProperties());
+            assertEquals(saved.fingerprints.size(), restored.fingerprints.size());
+            for (int i = 0; i < saved.fingerprints.size(); i++) {
+                FileFingerprint expected = saved.fingerprints.get(i);
+                FileFingerprint actual = restored.fingerprints.get(i);
+                assertEquals(expected.getPath(), actual.getPath());
+                assertEquals(expected.getSize(), actual.getSize());
+                assertEquals(expected.getLastModified(), actual.getLastModified());
+                assertArrayEquals(expected.getHash(), actual.getHash());
+            }
+        }
+    }
+
+    @Test
+    void cacheRestoresUnchangedEntries() throws Exception {
+        File buildFile = Paths.get(getClass().getResource("/outline/build.xml").toURI()).toFile();
+        ParseCache cache = new ParseCache();
+        cache.get(buildFile, true);
+        Path snapshot = dir.resolve("cache.bin");
+        cache.save(snapshot);
+
+        assertEquals(1, new ParseCache().load(snapshot));
+    }
+
+    @Test
+    void missingOrForeignSnapshotIsEmpty() throws Exception {
+        assertTrue(ParseCacheStore.load(dir.resolve("missing.bin")).isEmpty());
+
+        Path foreign = dir.resolve("foreign.bin");
+        Files.write(foreign, "not a snapshot".getBytes());
+        assertTrue(ParseCacheStore.load(foreign).isEmpty());
+    }
+
+    @Test
+    void truncatedSnapshotIsEmpty() throws Exception {
+        Path snapshot = dir.resolve("cache.bin");
+        ParseCacheStore.save(snapshot, parse(false));
+        byte[] bytes = Files.readAllBytes(snapshot);
+
+        Path truncated = dir.resolve("truncated.bin");
+        for (int length = 0; length < bytes.length; length += 7) {
+            Files.write(truncated, Arrays.copyOf(bytes, length));
+            assertTrue(ParseCacheStore.load(truncated).isEmpty(), "truncated to " + length);
+        }
+    }
+
+    @Test
+    void corruptLengthsAreRejectedBeforeAllocating() throws Exception {
+        Path snapshot = dir.resolve("cache.bin");
+        ParseCacheStore.save(snapshot, parse(false));
+        byte[] bytes = Files.readAllBytes(snapshot);
+
+        // Entry count, then the byte length of the first key
+        for (int offset : new int[] {8, 12}) {
+            for (int value : new int[] {Integer.MAX_VALUE, -2}) {
+                byte[] corrupt = bytes.clone();
+                ByteBuffer.wrap(corrupt).putInt(offset, value);
+                Path file = dir.resolve("corrupt.bin");
+                Files.write(file, corrupt);
+                assertTrue(ParseCacheStore.load(file).isEmpty(), "value " + value + " at " + offset);
+            }
+        }
+    }
+
+    @Test
+    void nullKeyOrPathIsRejected() throws Exception {
+        Path snapshot = dir.resolve("cache.bin");
+        ParseCacheStore.save(snapshot, parse(false));
+        byte[] bytes = Files.readAllBytes(snapshot);
+
+        // The byte length of the first key, then that of its first fingerprint path
+        int keyLength = ByteBuffer.wrap(bytes).getInt(12);
+        for (int offset : new int[] {12, 20 + keyLength}) {
+            byte[] corrupt = bytes.clone();
+            ByteBuffer.wrap(corrupt).putInt(offset, -1);
+            Path file = dir.resolve("corrupt.bin");
+            Files.write(file, corrupt);
+            assertTrue(ParseCacheStore.load(file).isEmpty(), "null at " + offset);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.vscode.ant;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorkspaceIndexerTest {
+
+    @TempDir
+    Path dir;
+
+    private boolean isBuildFile(String content) throws IOException {
+        Path file = Files.createTempFile(dir, "file", ".xml");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return WorkspaceIndexer.isBuildFile(file);
+    }
+
+    @Test
+    void acceptsAntProjects() throws IOException {
+        assertTrue(isBuildFile("<project name=\"app\" default=\"all\"/>"));
+        assertTrue(isBuildFile("<?xml version=\"1.0\"?>\n<!-- comment -->\n<!DOCTYPE project SYSTEM \"ant.dtd\">\n"
+                + "<project name=\"app\"><target name=\"all\"/></project>"));
+        assertTrue(isBuildFile("<project xmlns:ivy=\"antlib:org.apache.ivy.ant\" name=\"app\"/>"));
+        assertTrue(isBuildFile("<project xmlns=\"antlib:org.apache.tools.ant\" name=\"app\"/>"));
+    }
+
+    @Test
+    void rejectsOtherXml() throws IOException {
+        assertFalse(isBuildFile("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">"
+                + "<modelVersion>4.0.0</modelVersion></project>"));
+        assertFalse(isBuildFile("<project xmlns=\"http://www.netbeans.org/ns/project/1\">"
+                + "<type>org.netbeans.modules.java.j2seproject</type></project>"));
+        assertFalse(isBuildFile("<antlib><taskdef name=\"x\" classname=\"X\"/></antlib>"));
+        assertFalse(isBuildFile("<project"));
+        assertFalse(isBuildFile(""));
+    }
+}
@@ -0,0 +1,116 @@
+package com.vscode.ant.graph;
+
+import com.vscode.ant.AntBuildInfo;
+import com.vscode.ant.AntParser;
+import com.vscode.ant.AntTarget;
+import com.vscode.ant.DependencyProblem;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.ProjectHelper;
+import org.apache.tools.ant.Target;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DependencyGraphTest {
+
+    private static File fixture(String name) throws URISyntaxException {
+        return Paths.get(DependencyGraphTest.class.getResource("/graph/" + name).toURI()).toFile();
+    }
+
+    private static Project antProject(File buildFile) {
+        Project project = new Project();
+        project.init();
+        ProjectHelper.configureProject(project, buildFile);
+        return project;
+    }
+
+    /**
+     * What {@code ant <target>} runs, or Ant's error message.
+     */
+    private static String antOrder(Project project, String target) {
+        try {
+            return project.topoSort(target, project.getTargets(), false).stream()
+                    .map(Target::getName)
+                    .collect(Collectors.joining(", "));
+        } catch (BuildException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static String graphOrder(DependencyGraph graph, String target) {
+        try {
+            return String.join(", ", graph.executionOrder(target));
+        } catch (BuildException e) {
+            return e.getMessage();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"order.xml", "missing.xml"})
+    void executionOrderMatchesAntTopoSort(String name) throws Exception {
+        File buildFile = fixture(name);
+        Project project = antProject(buildFile);
+        AntBuildInfo buildInfo = AntParser.parseBuildFile(buildFile, false);
+        DependencyGraph graph = DependencyGraph.of(buildInfo);
+
+        for (AntTarget target : buildInfo.getTargets()) {
+            assertEquals(antOrder(project, target.getName()), graphOrder(graph, target.getName()), target.getName());
+        }
+    }
+
+    @Test
+    void cycleMessagesMatchAnt() throws Exception {
+        File buildFile = fixture("cycle.xml");
+        Project project = antProject(buildFile);
+        DependencyGraph graph = DependencyGraph.of(AntParser.parseBuildFile(buildFile, false));
+
+        // Targets that reach the cycle enter it at the same place as Ant's walk
+        for (String target : List.of("all", "a", "b", "c")) {
+            assertEquals(antOrder(project, target), graphOrder(graph, target), target);
+        }
+        assertEquals("Circular dependency: a <- c <- b <- a", graphOrder(graph, "all"));
+        // Like Ant, a cycle anywhere in the project fails every target
+        assertThrows(BuildException.class, () -> graph.executionOrder("standalone"));
+    }
+
+    @Test
+    void problemsNameCyclesAndMissingTargets() throws Exception {
+        DependencyGraph cycle = DependencyGraph.of(AntParser.parseBuildFile(fixture("cycle.xml"), false));
+        List<DependencyProblem> cycleProblems = cycle.problems();
+        assertEquals(1, cycleProblems.size());
+        assertEquals(DependencyProblem.CYCLE, cycleProblems.get(0).getKind());
+        assertEquals(List.of("a", "b", "c"), cycleProblems.get(0).getTargets());
+
+        DependencyGraph missing = DependencyGraph.of(AntParser.parseBuildFile(fixture("missing.xml"), false));
+        List<DependencyProblem> missingProblems = missing.problems();
+        assertEquals(1, missingProblems.size());
+        assertEquals(DependencyProblem.MISSING_TARGET, missingProblems.get(0).getKind());
+        assertEquals("generate", missingProblems.get(0).getMissingTarget());
+        assertEquals(List.of("generate"), missing.unknownTargets());
+    }
+
+    @Test
+    void closuresFollowDependenciesBothWays() throws Exception {
+        DependencyGraph graph = DependencyGraph.of(AntParser.parseBuildFile(fixture("order.xml"), false));
+
+        // Index order is the order of the parse result's targets, so compare sorted
+        assertEquals(List.of("compile", "generate", "init", "resources"), sorted(graph.closureNames("jar")));
+        assertEquals(List.of("all", "compile", "jar", "test", "test-compile"),
+                sorted(graph.dependentClosureNames("generate")));
+        assertEquals(List.of("jar", "test", "test-compile"), sorted(graph.dependentNames("compile")));
+    }
+
+    private static List<String> sorted(List<String> names) {
+        return names.stream().sorted().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,145 @@
+package com.vscode.ant.graph;
+
+import com.vscode.ant.AntBuildInfo;
+import com.vscode.ant.AntParser;
+import com.vscode.ant.PropertyExpander;
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.ProjectHelper;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExecutionPlanTest {
+
+    private static final List<Map<String, String>> PROPERTY_SETS = List.of(
+            Map.of(),
+            Map.of("flag", ""),
+            Map.of("flag", "x", "skip.both", "x"),
+            Map.of("mode", "true"),
+            Map.of("mode", "flag"),
+            Map.of("mode", "flag", "flag", "x"),
+            Map.of("mode", "off"));
+
+    private static File buildFile() throws Exception {
+        return Paths.get(ExecutionPlanTest.class.getResource("/plan/conditional.xml").toURI()).toFile();
+    }
+
+    private static List<String> describe(List<ExecutionPlan.Step> plan) {
+        List<String> steps = new ArrayList<>();
+        for (ExecutionPlan.Step step : plan) {
+            steps.add(step.getTarget() + (step.getSkipReason() != null ? ": " + step.getSkipReason() : ""));
+        }
+        return steps;
+    }
+
+    /**
+     * The targets Ant runs, each with its skip message if its tasks didn't run.
+     */
+    private static List<String> runWithAnt(File buildFile, List<String> targets, Map<String, String> properties) {
+        Project project = new Project();
+        List<String> steps = new ArrayList<>();
+        project.addBuildListener(new BuildListener() {
+            @Override
+            public void buildStarted(BuildEvent event) {
+            }
+
+            @Override
+            public void buildFinished(BuildEvent event) {
+            }
+
+            @Override
+            public void targetStarted(BuildEvent event) {
+                steps.add(event.getTarget().getName());
+            }
+
+            @Override
+            public void targetFinished(BuildEvent event) {
+            }
+
+            @Override
+            public void taskStarted(BuildEvent event) {
+            }
+
+            @Override
+            public void taskFinished(BuildEvent event) {
+            }
+
+            @Override
+            public void messageLogged(BuildEvent event) {
+                String message = event.getMessage();
+                if (event.getTask() == null && event.getTarget() != null && message.startsWith("Skipped because")) {
+                    steps.set(steps.size() - 1, steps.get(steps.size() - 1) + ": " + message);
+                }
+            }
+        });
+        project.init();
+        // Like the ant command; the test JVM's basedir system property is the module's
+        project.setBasedir(buildFile.getParent());
+        properties.forEach(project::setUserProperty);
+        ProjectHelper.configureProject(project, buildFile);
+        project.executeTargets(new Vector<>(targets.isEmpty()
+                ? Collections.singletonList(project.getDefaultTarget()) : targets));
+        return steps;
+    }
+
+    @Test
+    void skippedTargetsMatchAnt() throws Exception {
+        File buildFile = buildFile();
+        AntBuildInfo buildInfo = AntParser.parseBuildFile(buildFile, false);
+        for (Map<String, String> properties : PROPERTY_SETS) {
+            assertEquals(runWithAnt(buildFile, List.of(), properties),
+                    describe(ExecutionPlan.of(buildInfo, List.of(), properties)), properties.toString());
+        }
+    }
+
+    @Test
+    void topLevelPropertiesMatchAnt() throws Exception {
+        File buildFile = Paths.get(ExecutionPlanTest.class.getResource("/plan/properties.xml").toURI()).toFile();
+        List<Map<String, String>> propertySets = List.of(
+                Map.of(),
+                Map.of("check", "report.enabled"),
+                Map.of("check", "report.enabled", "report.enabled", ""),
+                Map.of("skip.tests", "false"));
+        for (boolean outline : new boolean[] {false, true}) {
+            AntBuildInfo buildInfo = AntParser.parseBuildFile(buildFile, outline);
+            for (Map<String, String> properties : propertySets) {
+                assertEquals(runWithAnt(buildFile, List.of(), properties),
+                        describe(ExecutionPlan.of(buildInfo, List.of(), properties)), outline + " " + properties);
+            }
+        }
+    }
+
+    @Test
+    void executorsMatchAnt() throws Exception {
+        File buildFile = buildFile();
+        AntBuildInfo buildInfo = AntParser.parseBuildFile(buildFile, false);
+        List<String> targets = List.of("with-flag", "by-mode", "both");
+        for (String executor : new String[] {null, ExecutionPlan.SINGLE_CHECK_EXECUTOR,
+                ExecutionPlan.IGNORE_DEPENDENCIES_EXECUTOR}) {
+            Map<String, String> properties = executor == null
+                    ? Map.of("mode", "flag")
+                    : Map.of("mode", "flag", ExecutionPlan.EXECUTOR_PROPERTY, executor);
+            assertEquals(runWithAnt(buildFile, targets, properties),
+                    describe(ExecutionPlan.of(buildInfo, targets, properties)), String.valueOf(executor));
+        }
+    }
+
+    @Test
+    void replacePropertiesLikeAnt() {
+        Map<String, String> properties = Map.of("a", "1", "b", "2");
+        assertEquals("1-2", PropertyExpander.replaceProperties("${a}-${b}", properties::get));
+        assertEquals("${c}", PropertyExpander.replaceProperties("${c}", properties::get));
+        assertEquals("$a", PropertyExpander.replaceProperties("$$a", properties::get));
+        assertEquals("${a", PropertyExpander.replaceProperties("${a", properties::get));
+    }
+}
@@ -0,0 +1,145 @@
+package com.vscode.ant.run;
+
+import org.apache.tools.ant.BuildException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DurationHistoryTest {
+
+    @TempDir
+    Path dir;
+
+    private static long[] millis(long... values) {
+        return LongStream.of(values).map(value -> value * 1000).toArray();
+    }
+
+    @Test
+    void nearestRankPercentiles() {
+        // 100, 200, ..., 2000 ms
+        long[] runs = LongStream.rangeClosed(1, 20).map(i -> i * 100_000).toArray();
+        DurationHistory.Stats stats = DurationHistory.stats(runs);
+
+        assertEquals(20, stats.getRuns());
+        assertEquals(1000, stats.getP50());
+        assertEquals(1900, stats.getP95());
+        assertEquals(2000, stats.getLast());
+
+        DurationHistory.Stats single = DurationHistory.stats(millis(250));
+        assertEquals(250, single.getP50());
+        assertEquals(250, single.getP95());
+        assertEquals(250, single.getLast());
+    }
+
+    @Test
+    void regressionIsMeasuredAgainstEarlierRuns() {
+        // 100 ms over the 95th percentile of the runs before is the threshold
+        long[] runs = LongStream.rangeClosed(1, 20).map(i -> i * 100_000).toArray();
+        assertTrue(DurationHistory.stats(runs).isRegressed());
+        runs[19] = 1_999_000;
+        assertFalse(DurationHistory.stats(runs).isRegressed());
+
+        // Needs five earlier runs
+        assertFalse(DurationHistory.stats(millis(10, 10, 10, 10, 5000)).isRegressed());
+        assertTrue(DurationHistory.stats(millis(10, 10, 10, 10, 10, 5000)).isRegressed());
+
+        // A target that takes next to no time isn't slower because it went from 1 to 50 ms
+        assertFalse(DurationHistory.stats(millis(1, 1, 1, 1, 1, 1, 50)).isRegressed());
+    }
+
+    private static BuildTrace run(File buildFile, String target) throws InterruptedException {
+        BuildTrace trace = new BuildTrace();
+        try {
+            new BuildRunner(buildFile, List.of(target), Collections.emptyMap()).run(trace);
+        } catch (BuildException e) {
+            // Recorded as failed
+        }
+        return trace;
+    }
+
+    @Test
+    void recordsSuccessfulTargetsOnly() throws Exception {
+        File buildFile = Paths.get(getClass().getResource("/history/build.xml").toURI()).toFile();
+        String path = buildFile.getAbsolutePath();
+        DurationHistory history = new DurationHistory(dir.resolve("history.bin"));
+
+        history.record(path, run(buildFile, "all"));
+        history.record(path, run(buildFile, "broken"));
+
+        Map<String, DurationHistory.Stats> stats = history.stats(path, List.of("compile", "optional", "all", "broken"));
+        // Skipped by its if, failed, or not run at all
+        assertEquals(List.of("compile", "all"), List.copyOf(stats.keySet()));
+        assertEquals(2, stats.get("compile").getRuns());
+        assertEquals(1, stats.get("all").getRuns());
+        assertTrue(history.stats("/elsewhere/build.xml", List.of("compile")).isEmpty());
+
+        DurationHistory.Prediction prediction = history.predict(path, List.of("compile", "optional", "all"));
+        assertEquals(List.of("optional"), prediction.getUnknown());
+        assertEquals(stats.get("compile").getP50() + stats.get("all").getP50(), prediction.getMillis());
+    }
+
+    @Test
+    void compactionKeepsTheLatestRuns() throws Exception {
+        File buildFile = Paths.get(getClass().getResource("/history/build.xml").toURI()).toFile();
+        String path = buildFile.getAbsolutePath();
+        Path file = dir.resolve("history.bin");
+        DurationHistory history = new DurationHistory(file);
+        BuildTrace trace = run(buildFile, "compile");
+        for (int i = 0; i < DurationHistory.KEEP_RUNS + 10; i++) {
+            history.record(path, trace);
+        }
+        long size = Files.size(file);
+
+        history.compact();
+
+        assertTrue(Files.size(file) < size);
+        assertEquals(DurationHistory.KEEP_RUNS, history.stats(path, List.of("compile")).get("compile").getRuns());
+    }
+
+    @Test
+    void tornRecordIsIgnoredAndOverwritten() throws Exception {
+        File buildFile = Paths.get(getClass().getResource("/history/build.xml").toURI()).toFile();
+        String path = buildFile.getAbsolutePath();
+        Path file = dir.resolve("history.bin");
+        DurationHistory history = new DurationHistory(file);
+        BuildTrace trace = run(buildFile, "compile");
+        history.record(path, trace);
+        history.record(path, trace);
+
+        // A crash while appending the second run
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 10);
+        }
+        assertEquals(1, history.stats(path, List.of("compile")).get("compile").getRuns());
+
+        history.record(path, trace);
+        assertEquals(2, history.stats(path, List.of("compile")).get("compile").getRuns());
+    }
+
+    @Test
+    void foreignFileStartsOver() throws Exception {
+        File buildFile = Paths.get(getClass().getResource("/history/build.xml").toURI()).toFile();
+        String path = buildFile.getAbsolutePath();
+        Path file = dir.resolve("history.bin");
+        Files.write(file, "not a duration history".getBytes());
+        DurationHistory history = new DurationHistory(file);
+
+        assertTrue(history.stats(path, List.of("compile")).isEmpty());
+        history.record(path, run(buildFile, "compile"));
+        assertEquals(1, history.stats(path, List.of("compile")).get("compile").getRuns());
+    }
+}
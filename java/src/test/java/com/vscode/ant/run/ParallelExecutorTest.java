@@ -0,0 +1,167 @@
+package com.vscode.ant.run;
+
+import com.vscode.ant.graph.ExecutionPlan;
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.ProjectHelper;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Vector;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelExecutorTest {
+
+    /**
+     * Records target starts and finishes and logged messages, from any thread.
+     */
+    private static final class Recorder implements BuildListener {
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+
+        List<String> started() {
+            List<String> started = new ArrayList<>();
+            synchronized (events) {
+                for (String event : events) {
+                    if (event.startsWith("start:")) {
+                        started.add(event.substring("start:".length()));
+                    }
+                }
+            }
+            return started;
+        }
+
+        @Override
+        public void buildStarted(BuildEvent event) {
+        }
+
+        @Override
+        public void buildFinished(BuildEvent event) {
+        }
+
+        @Override
+        public void targetStarted(BuildEvent event) {
+            events.add("start:" + event.getTarget().getName());
+        }
+
+        @Override
+        public void targetFinished(BuildEvent event) {
+            events.add("finish:" + event.getTarget().getName());
+        }
+
+        @Override
+        public void taskStarted(BuildEvent event) {
+        }
+
+        @Override
+        public void taskFinished(BuildEvent event) {
+        }
+
+        @Override
+        public void messageLogged(BuildEvent event) {
+            messages.add(event.getMessage());
+        }
+    }
+
+    private static Project project(String executor, String threads, Recorder recorder) throws Exception {
+        File buildFile = Paths.get(ParallelExecutorTest.class.getResource("/parallel/build.xml").toURI()).toFile();
+        Project project = new Project();
+        project.addBuildListener(recorder);
+        project.init();
+        project.setUserProperty(ExecutionPlan.EXECUTOR_PROPERTY, executor);
+        if (threads != null) {
+            project.setUserProperty(ParallelExecutor.THREADS_PROPERTY, threads);
+        }
+        ProjectHelper.configureProject(project, buildFile);
+        return project;
+    }
+
+    private static Recorder run(String executor, String threads, String... targets) throws Exception {
+        Recorder recorder = new Recorder();
+        project(executor, threads, recorder).executeTargets(new Vector<>(List.of(targets)));
+        return recorder;
+    }
+
+    @Test
+    void oneThreadRunsInSingleCheckExecutorOrder() throws Exception {
+        String[][] requests = {{"all"}, {"f", "c"}, {"e", "a", "d"}};
+        for (String[] targets : requests) {
+            assertEquals(run(ExecutionPlan.SINGLE_CHECK_EXECUTOR, null, targets).started(),
+                    run(ExecutionPlan.PARALLEL_EXECUTOR, "1", targets).started(), String.join(",", targets));
+        }
+    }
+
+    @Test
+    void dependenciesFinishBeforeDependentsStart() throws Exception {
+        for (int attempt = 0; attempt < 20; attempt++) {
+            Recorder recorder = new Recorder();
+            Project project = project(ExecutionPlan.PARALLEL_EXECUTOR, "4", recorder);
+            project.executeTargets(new Vector<>(List.of("all")));
+
+            List<String> events = new ArrayList<>(recorder.events);
+            List<String> started = recorder.started();
+            assertEquals(List.of("a", "all", "b", "c", "d", "e", "f", "init"),
+                    started.stream().sorted().collect(Collectors.toList()));
+            for (String name : started) {
+                int start = events.indexOf("start:" + name);
+                for (String dependency : Collections.list(project.getTargets().get(name).getDependencies())) {
+                    int finish = events.indexOf("finish:" + dependency);
+                    assertTrue(finish >= 0 && finish < start,
+                            dependency + " finished after " + name + " started: " + events);
+                }
+            }
+        }
+    }
+
+    @Test
+    void failureStopsOtherBranches() throws Exception {
+        Recorder recorder = new Recorder();
+        Project project = project(ExecutionPlan.PARALLEL_EXECUTOR, "4", recorder);
+
+        long start = System.nanoTime();
+        BuildException error = assertThrows(BuildException.class,
+                () -> project.executeTargets(new Vector<>(List.of("fail-fast"))));
+
+        assertEquals("boom", error.getMessage());
+        assertTrue(System.nanoTime() - start < 10_000_000_000L, "slow target was not interrupted");
+        assertFalse(recorder.messages.contains("after sleep"));
+        assertFalse(recorder.started().contains("after-slow"));
+        assertFalse(recorder.started().contains("fail-fast"));
+    }
+
+    @Test
+    void keepGoingSkipsOnlyDependentsOfFailures() throws Exception {
+        Recorder recorder = new Recorder();
+        Project project = project(ExecutionPlan.PARALLEL_EXECUTOR, "4", recorder);
+        project.setKeepGoingMode(true);
+
+        BuildException error = assertThrows(BuildException.class,
+                () -> project.executeTargets(new Vector<>(List.of("keep-going"))));
+
+        assertEquals("boom", error.getMessage());
+        List<String> started = recorder.started();
+        assertTrue(started.contains("independent"), started.toString());
+        assertFalse(started.contains("after-fail"), started.toString());
+        assertFalse(started.contains("keep-going"), started.toString());
+        assertTrue(recorder.messages.contains("Cannot execute 'after-fail' - 'fail' failed or was not executed."),
+                recorder.messages.toString());
+    }
+
+    @Test
+    void rejectsInvalidThreadCounts() {
+        for (String threads : new String[] {"0", "-1", "many"}) {
+            assertThrows(BuildException.class, () -> run(ExecutionPlan.PARALLEL_EXECUTOR, threads, "all"), threads);
+        }
+    }
+}
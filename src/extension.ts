@@ -33,7 +33,7 @@ export function activate(context: vscode.ExtensionContext) {
     console.log('Apache Ant Manager is now active');
 
     const parserService = new AntParserService(context);
-    const taskService = new AntTaskService();
+    const taskService = new AntTaskService(parserService);
 
     // Helper function to open the task editor
     const openTaskEditor = (task: AntTaskConfig | null, isNew: boolean) => {
@@ -160,6 +160,74 @@ export function activate(context: vscode.ExtensionContext) {
         }
     );
 
+    // Command: Find Build Files in the workspace
+    const findBuildFilesCommand = vscode.commands.registerCommand(
+        'apache-ant-manager.findBuildFiles',
+        async () => {
+            const folders = vscode.workspace.workspaceFolders;
+            if (!folders || folders.length === 0) {
+                vscode.window.showWarningMessage('Open a folder to search it for Ant build files.');
+                return;
+            }
+
+            const quickPick = vscode.window.createQuickPick<vscode.QuickPickItem & { buildFile: string }>();
+            quickPick.placeholder = 'Select an Ant build file';
+            quickPick.matchOnDescription = true;
+            quickPick.busy = true;
+            const items: (vscode.QuickPickItem & { buildFile: string })[] = [];
+            const addItem = (buildFile: string, detail?: string) => {
+                items.push({
+                    label: path.basename(buildFile),
+                    description: vscode.workspace.asRelativePath(buildFile),
+                    detail,
+                    buildFile
+                });
+                quickPick.items = items;
+            };
+            quickPick.onDidAccept(() => {
+                const selected = quickPick.selectedItems[0];
+                quickPick.hide();
+                if (selected) {
+                    AntConfigurationPanel.createOrShow(
+                        context.extensionUri,
+                        parserService,
+                        taskService,
+                        selected.buildFile,
+                        { isEditMode: false }
+                    );
+                }
+            });
+            quickPick.onDidHide(() => quickPick.dispose());
+            quickPick.show();
+
+            const config = vscode.workspace.getConfiguration('apacheAntManager');
+            try {
+                if (config.get<boolean>('useJavaParser') ?? false) {
+                    // files.exclude globs work as index excludes; the defaults skip VCS folders and node_modules
+                    const filesExclude = vscode.workspace.getConfiguration('files').get<{ [glob: string]: boolean }>('exclude') ?? {};
+                    const excludes = ['.git', '.svn', '.hg', 'node_modules',
+                        ...Object.keys(filesExclude).filter(glob => filesExclude[glob] === true)];
+                    await parserService.indexWorkspace(
+                        folders.map(folder => folder.uri.fsPath),
+                        excludes,
+                        (buildFile, buildInfo, error) => addItem(buildFile, error ?? buildInfo?.projectName)
+                    );
+                } else {
+                    const files = await vscode.workspace.findFiles('**/*.xml', '**/node_modules/**');
+                    for (const file of files) {
+                        if (await isAntBuildFile(file.fsPath)) {
+                            addItem(file.fsPath);
+                        }
+                    }
+                }
+            } catch (error) {
+                vscode.window.showErrorMessage(`Failed to search for Ant build files: ${error}`);
+            } finally {
+                quickPick.busy = false;
+            }
+        }
+    );
+
     // Command: Run Targets
     const runTargetsCommand = vscode.commands.registerCommand(
         'apache-ant-manager.runTargets',
@@ -209,8 +277,10 @@ export function activate(context: vscode.ExtensionContext) {
     );
 
     context.subscriptions.push(
+        parserService,
         openConfigurationCommand,
         selectBuildFileCommand,
+        findBuildFilesCommand,
         runTargetsCommand,
         runSingleTargetCommand,
         refreshCommand
@@ -100,6 +100,22 @@ export class AntConfigurationPanel {
         // Listen for when the panel is disposed
         this._panel.onDidDispose(() => this.dispose(), null, this._disposables);
 
+        // Offer to reload when the Java parser reports that the build file changed on disk.
+        // Not reloaded automatically, since that would discard what was entered in the form.
+        this._parserService.onDidChangeBuildFile(async (event) => {
+            if (path.resolve(event.buildFile) !== path.resolve(this._buildFilePath)) {
+                return;
+            }
+            const choice = await vscode.window.showInformationMessage(
+                `${path.basename(event.buildFile)} changed on disk.`,
+                'Reload'
+            );
+            if (choice === 'Reload' && path.resolve(event.buildFile) === path.resolve(this._buildFilePath)) {
+                this._panel.webview.html = this._getLoadingHtml(this._panel.webview);
+                await this._update();
+            }
+        }, null, this._disposables);
+
         // Handle messages from the webview
         this._panel.webview.onDidReceiveMessage(
             async (message) => {
@@ -192,6 +208,9 @@ export class AntConfigurationPanel {
                             });
                         }
                         break;
+                    case 'previewPlan':
+                        await this._previewPlan(message.requestId, message.targets, message.additionalArgs || '');
+                        break;
                     case 'refresh':
                         this._parserService.clearCache(this._buildFilePath);
                         // Show loading state while re-parsing
@@ -206,6 +225,9 @@ export class AntConfigurationPanel {
     }
 
     public async updateBuildFile(buildFilePath: string): Promise<void> {
+        if (buildFilePath !== this._buildFilePath) {
+            this._parserService.unwatch(this._buildFilePath);
+        }
         this._buildFilePath = buildFilePath;
         // Show loading state while parsing
         this._panel.webview.html = this._getLoadingHtml(this._panel.webview);
@@ -218,12 +240,38 @@ export class AntConfigurationPanel {
             const title = this._editContext.isEditMode ? 'Edit Ant Task' : 'New Ant Task';
             this._panel.title = title;
             this._panel.webview.html = this._getHtmlForWebview(this._panel.webview);
+
+            // Ant refuses to run any target of a project with a cycle or a missing dependency
+            const problems = this._buildInfo.dependencyProblems;
+            if (problems && problems.length > 0) {
+                const more = problems.length > 1 ? ` (and ${problems.length - 1} more)` : '';
+                vscode.window.showWarningMessage(`${path.basename(this._buildFilePath)}: ${problems[0].message}${more}`);
+            }
         } catch (error) {
             this._panel.webview.html = this._getErrorHtml(this._panel.webview, `${error}`);
             vscode.window.showErrorMessage(`Failed to parse build file: ${error}`);
         }
     }
 
+    /**
+     * Send the webview the targets Ant would run for the current selection and -D properties,
+     * with how long they took in earlier in-process runs.
+     * Needs the Java parser daemon; with the XML parser the preview stays hidden.
+     */
+    private async _previewPlan(requestId: number, targets: string[], additionalArgs: string): Promise<void> {
+        const config = vscode.workspace.getConfiguration('apacheAntManager');
+        if (!(config.get<boolean>('useJavaParser') ?? false)) {
+            return;
+        }
+        try {
+            const properties = this._taskService.getUserProperties(additionalArgs);
+            const prediction = await this._parserService.predictExecution(this._buildFilePath, targets, properties);
+            this._panel.webview.postMessage({ command: 'plan', requestId, ...prediction });
+        } catch (error) {
+            this._panel.webview.postMessage({ command: 'plan', requestId, error: `${error}` });
+        }
+    }
+
     private _getLoadingHtml(webview: vscode.Webview): string {
         const styleUri = webview.asWebviewUri(
             vscode.Uri.joinPath(this._extensionUri, 'media', 'style.css')
@@ -427,6 +475,12 @@ export class AntConfigurationPanel {
             <h2>Execution Order</h2>
             <p class="help-text">Use the arrows to reorder selected targets. Targets will run from top to bottom.</p>
             <div id="selectedOrder" class="selected-order-list"></div>
+            <div id="planSection" class="plan-section" style="display: none;">
+                <h3>Targets Ant Will Run</h3>
+                <p class="help-text">Including dependencies, with if/unless evaluated against the build file's top-level properties and the -D properties below.</p>
+                <div id="planList" class="plan-list"></div>
+                <div id="planEstimate" class="help-text"></div>
+            </div>
         </section>
 
         <section class="arguments-section">
@@ -455,6 +509,7 @@ export class AntConfigurationPanel {
             
             if (selectedTargetsOrder.length === 0) {
                 orderDiv.innerHTML = '<div class="no-selection">No targets selected</div>';
+                document.getElementById('planSection').style.display = 'none';
                 return;
             }
             
@@ -469,6 +524,8 @@ export class AntConfigurationPanel {
                 '</div>'
             ).join('');
             
+            requestPlan();
+
             // Attach event listeners to the new buttons
             orderDiv.querySelectorAll('.order-up').forEach((btn, idx) => {
                 btn.addEventListener('click', () => moveTarget(idx, -1));
@@ -478,6 +535,69 @@ export class AntConfigurationPanel {
             });
         }
 
+        // Ask the extension for the execution plan; only the latest answer is shown
+        let planRequestId = 0;
+        let planTimer = undefined;
+        function requestPlan() {
+            clearTimeout(planTimer);
+            planTimer = setTimeout(() => {
+                if (selectedTargetsOrder.length === 0) {
+                    return;
+                }
+                vscode.postMessage({
+                    command: 'previewPlan',
+                    requestId: ++planRequestId,
+                    targets: selectedTargetsOrder,
+                    additionalArgs: getAdditionalArgs()
+                });
+            }, 100);
+        }
+
+        function renderPlan(message) {
+            if (message.requestId !== planRequestId) {
+                return;
+            }
+            const section = document.getElementById('planSection');
+            const list = document.getElementById('planList');
+            const estimate = document.getElementById('planEstimate');
+            section.style.display = selectedTargetsOrder.length === 0 ? 'none' : '';
+            list.innerHTML = '';
+            estimate.textContent = '';
+            if (message.error) {
+                const error = document.createElement('div');
+                error.className = 'plan-error';
+                error.textContent = message.error;
+                list.appendChild(error);
+                return;
+            }
+            message.steps.forEach((step, i) => {
+                const item = document.createElement('div');
+                item.className = step.skipped ? 'plan-step plan-skipped' : 'plan-step';
+                item.textContent = (i + 1) + '. ' + step.name;
+                if (step.skipped) {
+                    item.title = step.skipped;
+                } else if (step.p50 !== undefined) {
+                    item.textContent += ' (' + formatSeconds(step.p50) + ')';
+                    item.title = 'Usually ' + formatSeconds(step.p50) + ', up to ' + formatSeconds(step.p95)
+                        + '; done after about ' + formatSeconds(step.eta);
+                    if (step.regressed) {
+                        item.className += ' plan-regressed';
+                        item.title += '. The last run was slower than usual.';
+                    }
+                }
+                list.appendChild(item);
+            });
+            if (message.steps.some(step => step.p50 !== undefined)) {
+                estimate.textContent = 'Estimated time: ' + formatSeconds(message.millis)
+                    + ' (up to ' + formatSeconds(message.p95Millis) + ')'
+                    + (message.unknown.length > 0 ? ', without ' + message.unknown.join(', ') + ' (no earlier runs)' : '');
+            }
+        }
+
+        function formatSeconds(millis) {
+            return (millis / 1000).toFixed(1) + ' s';
+        }
+
         // Move a target up or down in the order
         function moveTarget(index, direction) {
             const newIndex = index + direction;
@@ -580,9 +700,14 @@ export class AntConfigurationPanel {
                 if (input) {
                     input.value = message.path;
                 }
+            } else if (message.command === 'plan') {
+                renderPlan(message);
             }
         });
 
+        // Update the plan while -D properties are typed
+        document.getElementById('additionalArgs').addEventListener('input', requestPlan);
+
         // Refresh button
         document.getElementById('refreshBtn').addEventListener('click', () => {
             vscode.postMessage({ command: 'refresh' });
@@ -594,6 +719,7 @@ export class AntConfigurationPanel {
 
     public dispose() {
         AntConfigurationPanel.currentPanel = undefined;
+        this._parserService.unwatch(this._buildFilePath);
 
         this._panel.dispose();
 
@@ -0,0 +1,115 @@
+import * as vscode from 'vscode';
+import { AntBuildEvent } from '../types/antTypes';
+import { AntParserService } from './AntParserService';
+
+// Width of the "[task] " column, as in Ant's DefaultLogger
+const LEFT_COLUMN_SIZE = 12;
+
+/**
+ * Terminal of a task that runs Ant targets in the Java parser's JVM.
+ * Prints the build like `ant` does and cancels it when the terminal is closed.
+ */
+export class AntBuildTerminal implements vscode.Pseudoterminal {
+    private readonly writeEmitter = new vscode.EventEmitter<string>();
+    private readonly closeEmitter = new vscode.EventEmitter<number>();
+    private readonly cancellation = new vscode.CancellationTokenSource();
+    private readonly startedTargets = new Set<string>();
+
+    readonly onDidWrite = this.writeEmitter.event;
+    readonly onDidClose = this.closeEmitter.event;
+
+    constructor(
+        private readonly parserService: AntParserService,
+        private readonly buildFilePath: string,
+        private readonly targets: string[],
+        private readonly properties: { [key: string]: string },
+        private readonly keepGoing: boolean = false,
+        private readonly trace: boolean = false
+    ) {}
+
+    open(): void {
+        this.writeLine(`Buildfile: ${this.buildFilePath}`);
+        this.parserService.runTargets(
+            this.buildFilePath,
+            this.targets,
+            this.properties,
+            events => this.onBuildEvents(events),
+            this.cancellation.token,
+            { keepGoing: this.keepGoing, trace: this.trace }
+        ).then(result => {
+            this.writeLine('');
+            this.writeLine('BUILD SUCCESSFUL');
+            this.writeLine(`Total time: ${(result.millis / 1000).toFixed(1)} seconds`);
+            if (result.criticalPath && result.criticalPath.targets.length > 0) {
+                const criticalPath = result.criticalPath;
+                const seconds = AntBuildTerminal.seconds;
+                const steps = criticalPath.targets.map(target => `${target.name} (${seconds(target.millis)})`);
+                this.writeLine(`Critical path: ${seconds(criticalPath.millis)} of ${seconds(criticalPath.targetMillis)} in targets: ${steps.join(' -> ')}`);
+            }
+            if (result.trace) {
+                this.writeLine(`Trace: ${result.trace} (open in https://ui.perfetto.dev)`);
+            }
+            return this.reportRegressions().then(() => this.closeEmitter.fire(0));
+        }, error => {
+            this.writeLine('');
+            this.writeLine('BUILD FAILED');
+            this.writeLine(error instanceof Error ? error.message : String(error));
+            this.closeEmitter.fire(1);
+        });
+    }
+
+    close(): void {
+        this.cancellation.cancel();
+        this.cancellation.dispose();
+    }
+
+    /**
+     * Print a batch of events with a single write, so chatty builds don't flood the terminal.
+     */
+    private onBuildEvents(events: AntBuildEvent[]): void {
+        const lines: string[] = [];
+        for (const event of events) {
+            if (event.type === 'targetStarted') {
+                this.startedTargets.add(event.target!);
+                lines.push('', `${event.target}:`);
+            } else if (event.type === 'message' && event.message !== undefined) {
+                let prefix = '';
+                if (event.task) {
+                    prefix = `[${event.task}] `.padStart(LEFT_COLUMN_SIZE);
+                }
+                for (const line of event.message.split(/\r?\n/)) {
+                    lines.push(prefix + line);
+                }
+            }
+        }
+        if (lines.length > 0) {
+            this.writeEmitter.fire(lines.join('\r\n') + '\r\n');
+        }
+    }
+
+    /**
+     * Point out targets of this run that took longer than they usually do.
+     */
+    private async reportRegressions(): Promise<void> {
+        try {
+            const history = await this.parserService.getTargetHistory(this.buildFilePath);
+            const seconds = AntBuildTerminal.seconds;
+            for (const target of history) {
+                if (target.regressed && this.startedTargets.has(target.name)) {
+                    this.writeLine(`Slower than usual: ${target.name} took ${seconds(target.last)}, usually ${seconds(target.p50)}`);
+                }
+            }
+        } catch (error) {
+            // Only a hint; the build itself succeeded
+            console.warn('Failed to read target durations:', error);
+        }
+    }
+
+    private writeLine(line: string): void {
+        this.writeEmitter.fire(line + '\r\n');
+    }
+
+    private static seconds(millis: number): string {
+        return `${(millis / 1000).toFixed(1)} s`;
+    }
+}
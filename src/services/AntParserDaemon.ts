@@ -0,0 +1,191 @@
+import * as cp from 'child_process';
+
+interface PendingRequest {
+    resolve: (result: any) => void;
+    reject: (error: Error) => void;
+    onEvent?: (event: AntParserDaemonEvent) => void;
+}
+
+/**
+ * Event pushed by the daemon without a request, e.g. when a watched build file changed.
+ */
+export interface AntParserDaemonEvent {
+    event: string;
+    buildFile: string;
+    /** Id of the request the event belongs to, e.g. an `index` request reporting each build file */
+    request?: number;
+    result?: any;
+    error?: string;
+}
+
+const STDERR_TAIL_LENGTH = 8192;
+
+/**
+ * Long-running Java parser process started with `--serve` (included in the given arguments).
+ * Requests and responses are exchanged as newline-delimited JSON over stdin/stdout,
+ * so the JVM and the Ant classes stay warm between parses.
+ */
+export class AntParserDaemon {
+    private child: cp.ChildProcess | undefined;
+    private pending: Map<number, PendingRequest> = new Map();
+    private nextId = 1;
+    // Chunks of the current, incomplete output line
+    private chunks: string[] = [];
+    // Tail of the process's stderr, for the error when it exits; task output printed
+    // during parses also goes there, so it is not kept in full
+    private stderr = '';
+
+    constructor(
+        private readonly javaPath: string,
+        private readonly args: string[],
+        private readonly env: NodeJS.ProcessEnv,
+        private readonly onEvent?: (event: AntParserDaemonEvent) => void
+    ) {}
+
+    /**
+     * Whether this daemon was started with the given launch settings.
+     */
+    matches(javaPath: string, args: string[]): boolean {
+        return this.javaPath === javaPath && this.args.join('\0') === args.join('\0');
+    }
+
+    /**
+     * Whether the Java process is currently running.
+     */
+    get running(): boolean {
+        return this.child !== undefined;
+    }
+
+    /**
+     * Send a request to the daemon, starting it if needed.
+     * Events the daemon pushes for this request before it answers go to `onEvent`.
+     * Aborting `signal` asks the daemon to cancel the request; it still answers it.
+     */
+    request<T>(
+        command: string,
+        params: { [key: string]: any },
+        onEvent?: (event: AntParserDaemonEvent) => void,
+        signal?: AbortSignal
+    ): Promise<T> {
+        const child = this.ensureStarted();
+        const id = this.nextId++;
+
+        return new Promise<T>((resolve, reject) => {
+            this.pending.set(id, { resolve, reject, onEvent });
+            child.stdin!.write(JSON.stringify({ id, command, ...params }) + '\n');
+            signal?.addEventListener('abort', () => {
+                if (this.child === child && this.pending.has(id)) {
+                    child.stdin!.write(JSON.stringify({ id: this.nextId++, command: 'cancel', request: id }) + '\n');
+                }
+            }, { once: true });
+        });
+    }
+
+    /**
+     * Stop the daemon and reject any outstanding requests.
+     */
+    dispose(): void {
+        const child = this.child;
+        this.child = undefined;
+        if (child) {
+            // Let the daemon save its parse cache; kill it only if it does not exit in time
+            child.stdin?.end(JSON.stringify({ command: 'shutdown' }) + '\n');
+            const timer = setTimeout(() => child.kill(), 2000);
+            child.once('exit', () => clearTimeout(timer));
+        }
+        this.rejectAll(new Error('Java parser daemon stopped'));
+    }
+
+    private ensureStarted(): cp.ChildProcess {
+        if (this.child) {
+            return this.child;
+        }
+
+        const child = cp.spawn(this.javaPath, this.args, { env: this.env });
+        this.child = child;
+        this.chunks = [];
+        this.stderr = '';
+
+        child.stdout!.setEncoding('utf8');
+        child.stdout!.on('data', (data: string) => this.onData(data));
+
+        child.stderr!.on('data', (data: Buffer) => {
+            this.stderr = (this.stderr + data.toString()).slice(-STDERR_TAIL_LENGTH);
+        });
+
+        child.on('error', (err: Error) => {
+            if (this.child === child) {
+                this.child = undefined;
+            }
+            this.rejectAll(err);
+        });
+
+        child.on('close', (code: number) => {
+            if (this.child === child) {
+                this.child = undefined;
+            }
+            this.rejectAll(new Error(`Java parser daemon exited with code ${code}: ${this.stderr}`));
+        });
+
+        return child;
+    }
+
+    /**
+     * Split output into lines. Only the new chunk is scanned for newlines and a
+     * line is joined once, so large responses arriving in many chunks stay linear.
+     */
+    private onData(data: string): void {
+        let start = 0;
+        let newline: number;
+        while ((newline = data.indexOf('\n', start)) >= 0) {
+            this.chunks.push(data.slice(start, newline));
+            const line = this.chunks.join('').trim();
+            this.chunks = [];
+            start = newline + 1;
+            if (line) {
+                this.onLine(line);
+            }
+        }
+        if (start < data.length) {
+            this.chunks.push(data.slice(start));
+        }
+    }
+
+    private onLine(line: string): void {
+        let response: any;
+        try {
+            response = JSON.parse(line);
+        } catch (e) {
+            console.warn('Ignoring malformed output from Java parser daemon:', line);
+            return;
+        }
+
+        if (response.event !== undefined) {
+            const owner = response.request !== undefined ? this.pending.get(response.request) : undefined;
+            if (owner) {
+                owner.onEvent?.(response);
+            } else {
+                this.onEvent?.(response);
+            }
+            return;
+        }
+
+        const pending = this.pending.get(response.id);
+        if (!pending) {
+            return;
+        }
+        this.pending.delete(response.id);
+
+        if (response.error !== undefined) {
+            pending.reject(new Error(response.error));
+        } else {
+            pending.resolve(response.result);
+        }
+    }
+
+    private rejectAll(error: Error): void {
+        const pending = Array.from(this.pending.values());
+        this.pending.clear();
+        pending.forEach(p => p.reject(error));
+    }
+}
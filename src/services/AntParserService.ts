@@ -1,7 +1,20 @@
 import * as vscode from 'vscode';
-import * as path from 'path';
 import * as cp from 'child_process';
-import { AntBuildInfo } from '../types/antTypes';
+import * as crypto from 'crypto';
+import * as path from 'path';
+import {
+    AntBuildEvent, AntBuildInfo, AntCriticalPath, ExecutionPlanStep, ExecutionPrediction, TargetDurationStats, WorkspaceIndexSummary
+} from '../types/antTypes';
+import { AntParserDaemon, AntParserDaemonEvent } from './AntParserDaemon';
+
+/**
+ * A build file parsed by the Java parser changed on disk and was parsed again.
+ */
+export interface BuildFileChangeEvent {
+    buildFile: string;
+    buildInfo?: AntBuildInfo;
+    error?: string;
+}
 
 /**
  * Service for parsing Ant build files using the Java parser component.
@@ -10,6 +23,17 @@ export class AntParserService {
     private jarPath: string;
     private cache: Map<string, { info: AntBuildInfo; timestamp: number }> = new Map();
     private readonly cacheTimeout = 30000; // 30 seconds
+    private static readonly maxTracesPerBuildFile = 10;
+    private daemon: AntParserDaemon | undefined;
+    private cdsArgsCache: { javaPath: string; args: string[] } | undefined;
+    private readonly cdsTrainings = new Set<string>();
+    private readonly _onDidChangeBuildFile = new vscode.EventEmitter<BuildFileChangeEvent>();
+
+    /**
+     * Fired when the Java parser daemon noticed that a parsed build file,
+     * one of its imports or a loaded property file changed.
+     */
+    readonly onDidChangeBuildFile = this._onDidChangeBuildFile.event;
 
     constructor(private context: vscode.ExtensionContext) {
         this.jarPath = path.join(context.extensionPath, 'java', 'target', 'ant-parser.jar');
@@ -36,21 +60,16 @@ export class AntParserService {
      * Parse an Ant build file and return target information.
      */
     async parseBuildFile(buildFilePath: string): Promise<AntBuildInfo> {
-        // Check cache first
-        const cached = this.cache.get(buildFilePath);
-        if (cached && Date.now() - cached.timestamp < this.cacheTimeout) {
-            return cached.info;
-        }
-
         const config = vscode.workspace.getConfiguration('apacheAntManager');
         const useJavaParser = config.get<boolean>('useJavaParser') ?? false;
 
-        // Use Java parser only if explicitly configured
+        // Use Java parser only if explicitly configured.
+        // The daemon caches results itself and re-parses only when the build file,
+        // one of its imports or a loaded property file changed, so no TTL cache here.
         if (useJavaParser) {
             try {
                 console.log('Parsing script with Java Ant Parser');
                 const buildInfo = await this.parseWithJava(buildFilePath);
-                this.cache.set(buildFilePath, { info: buildInfo, timestamp: Date.now() });
                 console.log('Ant script parsed with the Java Ant Parser');
                 return buildInfo;
             } catch (error) {
@@ -58,6 +77,12 @@ export class AntParserService {
             }
         }
 
+        // Check cache first
+        const cached = this.cache.get(buildFilePath);
+        if (cached && Date.now() - cached.timestamp < this.cacheTimeout) {
+            return cached.info;
+        }
+
         // Use fast XML parser (default)
         console.log('Parsing script with XML Parser');
         const buildInfo = await this.parseWithXml(buildFilePath);
@@ -67,70 +92,199 @@ export class AntParserService {
 
     /**
      * Parse using the Java Ant parser component.
+     * Requests go to a long-running parser daemon so the JVM is only started once.
+     * The daemon keeps watching the build file and reports changes through onDidChangeBuildFile.
      */
     private async parseWithJava(buildFilePath: string): Promise<AntBuildInfo> {
-        return new Promise((resolve, reject) => {
-            const config = vscode.workspace.getConfiguration('apacheAntManager');
-            // Get configured paths and resolve any VS Code variables
-            const javaHomeRaw = config.get<string>('javaHome') || process.env.JAVA_HOME || '';
-            const antHomeRaw = config.get<string>('antHome') || process.env.ANT_HOME || '';
-            const javaHome = this.resolveVariables(javaHomeRaw);
-            const antHome = this.resolveVariables(antHomeRaw);
-            const javaPath = javaHome ? path.join(javaHome, 'bin', 'java') : 'java';
-
-            // Build environment with ANT_HOME and JAVA_HOME (resolved paths)
-            const env: NodeJS.ProcessEnv = { ...process.env };
-            if (antHome) {
-                env['ANT_HOME'] = antHome;
-            }
-            if (javaHome) {
-                env['JAVA_HOME'] = javaHome;
-            }
-
-            // Build classpath including Ant libraries if ANT_HOME is set
-            const classpathParts: string[] = [this.jarPath];
-            if (antHome) {
-                const antLibPath = path.join(antHome, 'lib', '*');
-                classpathParts.push(antLibPath);
-            }
-            const classpath = classpathParts.join(path.delimiter);
+        const config = vscode.workspace.getConfiguration('apacheAntManager');
+        const outline = config.get<boolean>('javaParserOutline') ?? false;
+        return this.getDaemon().request<AntBuildInfo>('watch', { buildFile: buildFilePath, outline });
+    }
 
-            const child = cp.spawn(javaPath, ['-cp', classpath, 'com.vscode.ant.AntParser', buildFilePath], {
-                cwd: path.dirname(buildFilePath),
-                env: env
+    private onDaemonEvent(event: AntParserDaemonEvent): void {
+        if (event.event === 'changed') {
+            this._onDidChangeBuildFile.fire({
+                buildFile: event.buildFile,
+                buildInfo: event.result,
+                error: event.error
             });
+        }
+    }
 
-            let stdout = '';
-            let stderr = '';
+    /**
+     * Get the parser daemon for the current Java/Ant settings,
+     * restarting it if those settings changed since it was started.
+     */
+    private getDaemon(): AntParserDaemon {
+        const config = vscode.workspace.getConfiguration('apacheAntManager');
+        // Get configured paths and resolve any VS Code variables
+        const javaHomeRaw = config.get<string>('javaHome') || process.env.JAVA_HOME || '';
+        const antHomeRaw = config.get<string>('antHome') || process.env.ANT_HOME || '';
+        const javaHome = this.resolveVariables(javaHomeRaw);
+        const antHome = this.resolveVariables(antHomeRaw);
+        const javaPath = javaHome ? path.join(javaHome, 'bin', 'java') : 'java';
+
+        // Build environment with ANT_HOME and JAVA_HOME (resolved paths)
+        const env: NodeJS.ProcessEnv = { ...process.env };
+        if (antHome) {
+            env['ANT_HOME'] = antHome;
+        }
+        if (javaHome) {
+            env['JAVA_HOME'] = javaHome;
+        }
 
-            child.stdout.on('data', (data: Buffer) => {
-                stdout += data.toString();
-            });
+        // Build classpath including Ant libraries if ANT_HOME is set
+        const classpathParts: string[] = [this.jarPath];
+        if (antHome) {
+            const antLibPath = path.join(antHome, 'lib', '*');
+            classpathParts.push(antLibPath);
+        }
+        const classpath = classpathParts.join(path.delimiter);
+        // Keep the parse cache snapshot in the workspace storage so it survives restarts
+        const storagePath = this.context.storageUri?.fsPath ?? this.context.globalStorageUri.fsPath;
+        const args = [
+            ...this.getCdsArgs(javaPath),
+            '-cp', classpath, 'com.vscode.ant.AntParser', '--serve', '--cache-dir', storagePath
+        ];
+
+        if (this.daemon && !this.daemon.matches(javaPath, args)) {
+            this.daemon.dispose();
+            this.daemon = undefined;
+        }
+        if (!this.daemon) {
+            this.daemon = new AntParserDaemon(javaPath, args, env, event => this.onDaemonEvent(event));
+        }
+        return this.daemon;
+    }
 
-            child.stderr.on('data', (data: Buffer) => {
-                stderr += data.toString();
-            });
+    /**
+     * JVM options for an AppCDS archive of the parser's classes, so the daemon starts faster.
+     * The archive is made on this machine, in the global storage: a dynamic archive records
+     * the jar's absolute path and only works with exactly the JVM that created it, so one
+     * built elsewhere would never match. It is keyed by the Java runtime version, the java
+     * executable and the jar.
+     *
+     * From JDK 19 the JVM creates and refreshes the archive itself. On JDK 13 to 18 a
+     * training run creates it in the background the first time (see trainCdsArchive), and it
+     * is used from the next daemon start on, only if the runtime version recorded next to it
+     * matches the `release` file of the Java installation about to be started.
+     * JVM log output goes to stderr so a rejected archive cannot corrupt the JSON on stdout.
+     */
+    private getCdsArgs(javaPath: string): string[] {
+        if (this.cdsArgsCache?.javaPath === javaPath) {
+            return this.cdsArgsCache.args;
+        }
 
-            child.on('close', (code: number) => {
-                if (code !== 0) {
-                    reject(new Error(`Java parser exited with code ${code}: ${stderr}`));
-                    return;
+        let args: string[] = [];
+        const fs = require('fs');
+        try {
+            const javaExecutable = this.findJavaExecutable(javaPath);
+            if (javaExecutable) {
+                const realJava: string = fs.realpathSync(javaExecutable);
+                // <java home>/bin/java -> <java home>/release
+                const release: string = fs.readFileSync(path.join(path.dirname(path.dirname(realJava)), 'release'), 'utf8');
+                const runtimeVersion = release.match(/^JAVA_RUNTIME_VERSION="([^"]*)"/m)?.[1];
+                const feature = Number(release.match(/^JAVA_VERSION="(?:1\.)?(\d+)/m)?.[1] ?? 0);
+                if (runtimeVersion && feature >= 13) {
+                    const jar = fs.statSync(this.jarPath);
+                    const key = crypto.createHash('sha256')
+                        .update([runtimeVersion, realJava, this.jarPath, jar.size, jar.mtimeMs].join('\n'))
+                        .digest('hex')
+                        .substring(0, 16);
+                    const dir = path.join(this.context.globalStorageUri.fsPath, 'cds');
+                    const archive = path.join(dir, `ant-parser-${key}.jsa`);
+                    const logArgs = ['-Xlog:disable', '-Xlog:all=warning:stderr'];
+                    if (feature >= 19) {
+                        fs.mkdirSync(dir, { recursive: true });
+                        args = [`-XX:SharedArchiveFile=${archive}`, '-XX:+AutoCreateSharedArchive', ...logArgs];
+                    } else if (fs.existsSync(archive)
+                        && fs.readFileSync(archive + '.version', 'utf8').trim() === runtimeVersion) {
+                        args = [`-XX:SharedArchiveFile=${archive}`, '-Xshare:auto', ...logArgs];
+                    } else {
+                        this.trainCdsArchive(realJava, archive);
+                    }
+                    this.removeOtherCdsArchives(dir, path.basename(archive));
                 }
+            }
+        } catch (error) {
+            // No archive or unknown Java version: start without it
+        }
 
-                try {
-                    const buildInfo = JSON.parse(stdout) as AntBuildInfo;
-                    resolve(buildInfo);
-                } catch (e) {
-                    reject(new Error(`Failed to parse JSON output: ${e}`));
-                }
-            });
+        this.cdsArgsCache = { javaPath, args };
+        return args;
+    }
 
-            child.on('error', (err: Error) => {
-                reject(err);
-            });
+    /**
+     * Create the AppCDS archive for a JDK before 19 by running the parser's CdsTraining with
+     * -XX:ArchiveClassesAtExit, in the background. The archive and its version file are
+     * written under temporary names and renamed when the training succeeded, the version
+     * file last, so a daemon never picks up half an archive.
+     */
+    private trainCdsArchive(javaExecutable: string, archive: string): void {
+        if (this.cdsTrainings.has(archive)) {
+            return;
+        }
+        this.cdsTrainings.add(archive);
+        const fs = require('fs');
+        fs.mkdirSync(path.dirname(archive), { recursive: true });
+        const temp = `${archive}.${process.pid}.tmp`;
+        const child = cp.spawn(javaExecutable, [
+            `-XX:ArchiveClassesAtExit=${temp}`, '-Xlog:cds=error',
+            '-cp', this.jarPath, 'com.vscode.ant.CdsTraining', `${temp}.version`
+        ], { stdio: 'ignore' });
+        child.on('error', error => console.warn('Failed to start the AppCDS training run:', error));
+        child.on('close', code => {
+            try {
+                if (code === 0 && fs.existsSync(temp) && fs.existsSync(`${temp}.version`)) {
+                    fs.renameSync(temp, archive);
+                    fs.renameSync(`${temp}.version`, `${archive}.version`);
+                }
+            } catch (error) {
+                console.warn('Failed to store the AppCDS archive:', error);
+            } finally {
+                fs.rmSync(temp, { force: true });
+                fs.rmSync(`${temp}.version`, { force: true });
+            }
         });
     }
 
+    /**
+     * Delete archives of earlier extension versions or Java installations, which would
+     * otherwise pile up in the global storage.
+     */
+    private removeOtherCdsArchives(dir: string, keep: string): void {
+        const fs = require('fs');
+        try {
+            for (const name of fs.readdirSync(dir) as string[]) {
+                if (name.startsWith('ant-parser-') && !name.startsWith(keep) && !name.endsWith('.tmp')) {
+                    fs.rmSync(path.join(dir, name), { force: true });
+                }
+            }
+        } catch (error) {
+            // Nothing to clean up, or an archive still in use on Windows
+        }
+    }
+
+    /**
+     * Resolve the java executable, looking it up on the PATH if no Java home is configured.
+     */
+    private findJavaExecutable(javaPath: string): string | undefined {
+        const fs = require('fs');
+        const names = process.platform === 'win32' ? ['java.exe', 'java'] : ['java'];
+        if (path.isAbsolute(javaPath)) {
+            return [javaPath, javaPath + '.exe'].find(candidate => fs.existsSync(candidate));
+        }
+        for (const dir of (process.env.PATH || '').split(path.delimiter)) {
+            for (const name of names) {
+                const candidate = path.join(dir, name);
+                if (dir && fs.existsSync(candidate)) {
+                    return candidate;
+                }
+            }
+        }
+        return undefined;
+    }
+
     /**
      * Fallback XML parsing without Java.
      * Follows import and include elements to find all targets.
@@ -272,5 +426,174 @@ export class AntParserService {
         } else {
             this.cache.clear();
         }
+        if (this.daemon?.running) {
+            this.daemon.request('invalidate', buildFilePath ? { buildFile: buildFilePath } : {})
+                .catch(error => console.warn('Failed to clear Java parser cache:', error));
+        }
+    }
+
+    /**
+     * The targets Ant runs for `target`, in order, as computed by the Java parser.
+     * Rejects with Ant's message when the target is missing or the graph has a cycle.
+     */
+    async getExecutionOrder(buildFilePath: string, target: string): Promise<string[]> {
+        const config = vscode.workspace.getConfiguration('apacheAntManager');
+        const outline = config.get<boolean>('javaParserOutline') ?? false;
+        return this.getDaemon().request<string[]>('executionOrder', { buildFile: buildFilePath, outline, target });
+    }
+
+    /**
+     * The targets `ant` would run for `targets` with the given user properties, in order,
+     * with if/unless evaluated. Only available with the Java parser.
+     */
+    async getExecutionPlan(
+        buildFilePath: string,
+        targets: string[],
+        properties: { [key: string]: string }
+    ): Promise<ExecutionPlanStep[]> {
+        const config = vscode.workspace.getConfiguration('apacheAntManager');
+        const outline = config.get<boolean>('javaParserOutline') ?? false;
+        return this.getDaemon().request<ExecutionPlanStep[]>('plan', { buildFile: buildFilePath, outline, targets, properties });
+    }
+
+    /**
+     * The execution plan with how long each target and the whole plan are expected to take,
+     * from the durations of earlier in-process runs. Only available with the Java parser.
+     */
+    async predictExecution(
+        buildFilePath: string,
+        targets: string[],
+        properties: { [key: string]: string }
+    ): Promise<ExecutionPrediction> {
+        const config = vscode.workspace.getConfiguration('apacheAntManager');
+        const outline = config.get<boolean>('javaParserOutline') ?? false;
+        return this.getDaemon().request<ExecutionPrediction>('predict', { buildFile: buildFilePath, outline, targets, properties });
+    }
+
+    /**
+     * Durations of the targets of a build file in earlier in-process runs.
+     */
+    async getTargetHistory(buildFilePath: string): Promise<TargetDurationStats[]> {
+        const config = vscode.workspace.getConfiguration('apacheAntManager');
+        const outline = config.get<boolean>('javaParserOutline') ?? false;
+        return this.getDaemon().request<TargetDurationStats[]>('history', { buildFile: buildFilePath, outline });
+    }
+
+    /**
+     * All targets that run `target`, directly or through other targets, as computed by the Java parser.
+     */
+    async getDependents(buildFilePath: string, target: string): Promise<string[]> {
+        const config = vscode.workspace.getConfiguration('apacheAntManager');
+        const outline = config.get<boolean>('javaParserOutline') ?? false;
+        return this.getDaemon().request<string[]>('dependents', { buildFile: buildFilePath, outline, target });
+    }
+
+    /**
+     * Find and parse all Ant build files below the given folders with the Java parser.
+     * Each build file is reported to `onBuildFile` as soon as it is parsed; the parse
+     * results are cached by the daemon, so opening one of them afterwards is immediate.
+     * Names or globs in `excludes` (like `files.exclude`) are not searched.
+     */
+    async indexWorkspace(
+        roots: string[],
+        excludes: string[] | undefined,
+        onBuildFile: (buildFile: string, buildInfo?: AntBuildInfo, error?: string) => void
+    ): Promise<WorkspaceIndexSummary> {
+        const config = vscode.workspace.getConfiguration('apacheAntManager');
+        const outline = config.get<boolean>('javaParserOutline') ?? false;
+        return this.getDaemon().request<WorkspaceIndexSummary>(
+            'index',
+            { roots, excludes, outline },
+            event => onBuildFile(event.buildFile, event.result, event.error)
+        );
+    }
+
+    /**
+     * Run targets inside the Java parser's JVM instead of starting `ant`, one build at a time.
+     * Build events are passed to `onEvents` in batches as they happen, with messages down to
+     * `options.level` (error, warning, info, verbose or debug); `options.keepGoing` is `ant -k`.
+     * Resolves with the duration when the build succeeded and rejects with Ant's message
+     * when it failed or was cancelled.
+     */
+    async runTargets(
+        buildFilePath: string,
+        targets: string[],
+        properties: { [key: string]: string },
+        onEvents: (events: AntBuildEvent[]) => void,
+        token?: vscode.CancellationToken,
+        options: { level?: string; keepGoing?: boolean; trace?: boolean } = {}
+    ): Promise<{ millis: number; criticalPath?: AntCriticalPath; trace?: string }> {
+        const abort = new AbortController();
+        const cancellation = token?.onCancellationRequested(() => abort.abort());
+        const params: { [key: string]: unknown } = {
+            buildFile: buildFilePath, targets, properties, level: options.level ?? 'info', keepGoing: options.keepGoing ?? false
+        };
+        if (options.trace) {
+            params.trace = this.getTracePath(buildFilePath);
+        }
+        try {
+            const result = await this.getDaemon().request<{ millis: number; criticalPath?: AntCriticalPath }>(
+                'run',
+                params,
+                event => onEvents((event as unknown as { events: AntBuildEvent[] }).events),
+                abort.signal
+            );
+            return { ...result, trace: params.trace as string | undefined };
+        } finally {
+            cancellation?.dispose();
+        }
+    }
+
+    /**
+     * Where the trace of a run goes: the extension's storage, one file per run.
+     * Only the last {@link maxTracesPerBuildFile} traces of a build file are kept.
+     */
+    private getTracePath(buildFilePath: string): string {
+        const storagePath = this.context.storageUri?.fsPath ?? this.context.globalStorageUri.fsPath;
+        const dir = path.join(storagePath, 'traces');
+        // The hash tells build files with the same name apart, the name keeps traces recognizable
+        const hash = crypto.createHash('sha1').update(path.resolve(buildFilePath)).digest('hex').substring(0, 12);
+        const prefix = `${path.basename(buildFilePath, '.xml')}-${hash}-`;
+        this.removeOldTraces(dir, prefix);
+        const time = new Date().toISOString().replace(/[:.]/g, '-');
+        return path.join(dir, `${prefix}${time}.json`);
+    }
+
+    /**
+     * Delete all but the newest traces of a build file, making room for the next one.
+     * Trace names end in an ISO timestamp, so they sort by age.
+     */
+    private removeOldTraces(dir: string, prefix: string): void {
+        const fs = require('fs');
+        const timestamp = /^\d{4}-\d{2}-\d{2}T\d{2}-\d{2}-\d{2}-\d{3}Z\.json$/;
+        try {
+            const traces = (fs.readdirSync(dir) as string[])
+                .filter(file => file.startsWith(prefix) && timestamp.test(file.substring(prefix.length)))
+                .sort();
+            for (const file of traces.slice(0, Math.max(0, traces.length - AntParserService.maxTracesPerBuildFile + 1))) {
+                fs.rmSync(path.join(dir, file), { force: true });
+            }
+        } catch (error) {
+            // No traces yet, or a trace still open on Windows
+        }
+    }
+
+    /**
+     * Stop watching a build file that is no longer shown.
+     */
+    unwatch(buildFilePath: string): void {
+        if (this.daemon?.running) {
+            this.daemon.request('unwatch', { buildFile: buildFilePath })
+                .catch(error => console.warn('Failed to stop watching build file:', error));
+        }
+    }
+
+    /**
+     * Stop the Java parser daemon, if one is running.
+     */
+    dispose(): void {
+        this.daemon?.dispose();
+        this.daemon = undefined;
+        this._onDidChangeBuildFile.dispose();
     }
 }
@@ -1,6 +1,8 @@
 import * as vscode from 'vscode';
 import * as path from 'path';
 import * as fs from 'fs';
+import { AntParserService } from './AntParserService';
+import { AntBuildTerminal } from './AntBuildTerminal';
 
 /**
  * Represents an Ant task configuration stored in tasks.json
@@ -35,6 +37,11 @@ export interface AntTaskConfig {
  * Service for managing Ant tasks in VS Code.
  */
 export class AntTaskService {
+
+    /**
+     * @param parserService used to run targets in-process when `apacheAntManager.runInProcess` is on
+     */
+    constructor(private readonly parserService?: AntParserService) {}
     
     /**
      * Convert an absolute path to a workspace-relative path using ${workspaceFolder:NAME}.
@@ -428,6 +435,11 @@ export class AntTaskService {
         javaHome?: string,
         shell?: string
     ): Promise<void> {
+        if (this.canRunInProcess(additionalArgs, antHome, javaHome, shell)) {
+            await this.runInProcess(buildFilePath, targets, additionalArgs || '');
+            return;
+        }
+
         // Generate a task configuration
         const taskConfig = this.generateTaskConfig(
             buildFilePath,
@@ -487,6 +499,50 @@ export class AntTaskService {
         await vscode.tasks.executeTask(task);
     }
 
+    /**
+     * Whether a run can go to the Java parser's JVM: the setting is on, the Java parser is used,
+     * and nothing but -D properties and -k is asked for, since there is no `ant` command line to pass it to.
+     */
+    private canRunInProcess(additionalArgs?: string, antHome?: string, javaHome?: string, shell?: string): boolean {
+        const config = vscode.workspace.getConfiguration('apacheAntManager');
+        if (!this.parserService || !(config.get<boolean>('runInProcess') ?? false)
+            || !(config.get<boolean>('useJavaParser') ?? false)) {
+            return false;
+        }
+        if (antHome || javaHome || shell) {
+            return false;
+        }
+        return this.parseAdditionalArgs(additionalArgs || '')
+            .map(arg => arg.replace(/^(["'])(.*)\1$/, '$2'))
+            .every(arg => arg.startsWith('-D') || AntTaskService.isKeepGoing(arg));
+    }
+
+    /**
+     * Run Ant targets in the Java parser's JVM, shown in a task terminal like a shell run.
+     */
+    private async runInProcess(buildFilePath: string, targets: string[], additionalArgs: string): Promise<void> {
+        const parserService = this.parserService!;
+        const buildFile = this.resolveWorkspacePath(buildFilePath);
+        const properties = this.getUserProperties(additionalArgs);
+        const keepGoing = this.parseAdditionalArgs(additionalArgs).some(AntTaskService.isKeepGoing);
+        const trace = vscode.workspace.getConfiguration('apacheAntManager').get<boolean>('traceBuilds') ?? false;
+        const workspaceFolders = vscode.workspace.workspaceFolders;
+        const task = new vscode.Task(
+            { type: 'ant-in-process' },
+            workspaceFolders && workspaceFolders.length > 0 ? workspaceFolders[0] : vscode.TaskScope.Workspace,
+            `Ant: ${targets.join(', ')}`,
+            'ant',
+            new vscode.CustomExecution(async () => new AntBuildTerminal(parserService, buildFile, targets, properties, keepGoing, trace)),
+            []
+        );
+        task.presentationOptions = { reveal: vscode.TaskRevealKind.Always, panel: vscode.TaskPanelKind.New };
+        await vscode.tasks.executeTask(task);
+    }
+
+    private static isKeepGoing(arg: string): boolean {
+        return arg === '-k' || arg === '-keep-going';
+    }
+
     /**
      * Generate a tasks.json entry for Ant targets.
      */
@@ -582,6 +638,21 @@ export class AntTaskService {
         return taskConfig;
     }
 
+    /**
+     * User properties (-Dname=value) from the additional arguments, with the quotes a shell would remove.
+     */
+    getUserProperties(argsString: string): { [key: string]: string } {
+        const properties: { [key: string]: string } = {};
+        for (const arg of this.parseAdditionalArgs(argsString)) {
+            const unquoted = arg.replace(/^(["'])(.*)\1$/, '$2');
+            const match = /^-D([^=]+)(?:=(.*))?$/.exec(unquoted);
+            if (match) {
+                properties[match[1]] = (match[2] ?? '').replace(/^(["'])(.*)\1$/, '$2');
+            }
+        }
+        return properties;
+    }
+
     /**
      * Parse additional arguments from a string (newline or space separated).
      */
@@ -8,6 +8,10 @@ export interface AntBuildInfo {
     description: string | null;
     buildFile: string;
     targets: AntTarget[];
+    /** Cycles and missing targets in the depends graph (Java parser only, omitted when there are none) */
+    dependencyProblems?: DependencyProblem[];
+    /** Build file, import/include closure and property files (Java parser only) */
+    sourceFiles?: string[];
 }
 
 /**
@@ -22,6 +26,98 @@ export interface AntTarget {
     isDefault: boolean;
 }
 
+/**
+ * A cycle or missing target that makes Ant fail before running anything.
+ */
+export interface DependencyProblem {
+    kind: 'cycle' | 'missingTarget';
+    /** The message Ant fails with */
+    message: string;
+    /** Members of the cycle, or the targets that depend on the missing target */
+    targets: string[];
+    missingTarget?: string;
+}
+
+/**
+ * One target of an execution plan, in the order Ant would run it.
+ */
+export interface ExecutionPlanStep {
+    name: string;
+    /** Why the target's tasks would not run (its if/unless condition), absent if they run */
+    skipped?: string;
+    /** Median and 95th percentile milliseconds of earlier in-process runs, absent without any */
+    p50?: number;
+    p95?: number;
+    /** Milliseconds into the run when the target is expected to be done */
+    eta?: number;
+    /** The latest run took longer than the 95th percentile of the runs before it */
+    regressed?: boolean;
+}
+
+/**
+ * An execution plan with how long its targets took in earlier in-process runs.
+ */
+export interface ExecutionPrediction {
+    steps: ExecutionPlanStep[];
+    /** Sum of the medians of the targets that ran before */
+    millis: number;
+    /** Sum of their 95th percentiles */
+    p95Millis: number;
+    /** Targets to run that have no earlier successful run */
+    unknown: string[];
+}
+
+/**
+ * Durations of a target in earlier in-process runs, in milliseconds.
+ */
+export interface TargetDurationStats {
+    name: string;
+    runs: number;
+    p50: number;
+    p95: number;
+    last: number;
+    /** The latest run took longer than the 95th percentile of the runs before it */
+    regressed: boolean;
+}
+
+/**
+ * Something that happened during a build run by the Java parser.
+ */
+export interface AntBuildEvent {
+    type: 'targetStarted' | 'targetFinished' | 'taskStarted' | 'taskFinished' | 'message';
+    /** Milliseconds since the build started */
+    time: number;
+    target?: string;
+    /** Name of the task, or of the task that logged a message */
+    task?: string;
+    /** Ant's message priority: 0 error, 1 warning, 2 info */
+    priority?: number;
+    message?: string;
+    /** Why the target or task failed */
+    error?: string;
+}
+
+/**
+ * Longest chain of targets through `depends` in a traced build: however many targets run
+ * at once, the build takes at least `millis`.
+ */
+export interface AntCriticalPath {
+    targets: { name: string; millis: number }[];
+    millis: number;
+    /** Time of all targets of the build together */
+    targetMillis: number;
+}
+
+/**
+ * Counts reported when the Java parser finished indexing a workspace.
+ */
+export interface WorkspaceIndexSummary {
+    directories: number;
+    xmlFiles: number;
+    buildFiles: number;
+    millis: number;
+}
+
 /**
  * Represents a user's Ant launch configuration.
  */